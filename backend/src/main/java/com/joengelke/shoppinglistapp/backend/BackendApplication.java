@@ -5,11 +5,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.joengelke.shoppinglistapp.backend.model.*;
 import com.joengelke.shoppinglistapp.backend.repository.UserRepository;
+import com.joengelke.shoppinglistapp.backend.service.DatasetGenerator;
+import com.joengelke.shoppinglistapp.backend.service.JobLeaseService;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
 import com.mongodb.client.gridfs.GridFSFindIterable;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.Setter;
@@ -45,6 +49,8 @@ public class BackendApplication {
     private boolean backupDB;
     @Value("${loadDB:false}")
     private boolean loadDB;
+    @Value("${generateDB:false}")
+    private boolean generateDB;
     @Autowired
     private MongoTemplate mongoTemplate;
     @Autowired
@@ -53,6 +59,12 @@ public class BackendApplication {
     private PasswordEncoder passwordEncoder;
     @Autowired
     private GridFsTemplate gridFsTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private DatasetGenerator datasetGenerator;
+    @Autowired
+    private JobLeaseService jobLeaseService;
 
     public static void main(String[] args) {
         SpringApplication.run(BackendApplication.class, args);
@@ -78,41 +90,67 @@ public class BackendApplication {
             if (loadDB) {
                 loadBackup();
             }
+            if (generateDB) {
+                datasetGenerator.generate();
+            }
 
             setupInitialAdmin();
         };
     }
 
+    // with several instances only the one holding the backup lease writes the backup
     @Scheduled(cron = "0 0 * * * *") // backup at the beginning of every hour
     public void performBackup() {
         if (backupDB) {
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.registerModule(new JavaTimeModule());
-            try {
-                System.out.print("Starting hourly backup ... ");
-
-                // Fetch the shopping lists and items from MongoDB
-                List<User> users = mongoTemplate.findAll(User.class);
-                List<ShoppingList> shoppingLists = mongoTemplate.findAll(ShoppingList.class);
-                List<ShoppingItem> shoppingItems = mongoTemplate.findAll(ShoppingItem.class);
-                List<ItemSet> itemSets = mongoTemplate.findAll(ItemSet.class);
-                List<Recipe> recipes = mongoTemplate.findAll(Recipe.class);
-
-                //Latest backup path
-                String latestBackupFilePath = "backup/shopping_backup.json";  // Modify the path as needed
-                File latestBackupFile = new File(latestBackupFilePath);
-                latestBackupFile.getParentFile().mkdirs();  // Ensure the folder exists
-
-                // Write the data to both the latest and archive backup files
-                writeBackupToFile(latestBackupFile, users, shoppingLists, shoppingItems, itemSets, recipes, objectMapper);
-
-                // Backup GridFS files
-                saveGridFSFiles();
-                System.out.println("Backup completed successfully!");
+            jobLeaseService.runExclusively("BACKUP", this::backup);
+        }
+    }
 
-            } catch (Exception e) {
-                throw new RuntimeException("Backup failed",e);
+    private void backup(JobLeaseService.Lease lease) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        try {
+            System.out.print("Starting hourly backup ... ");
+            Timer.Sample total = Timer.start(meterRegistry);
+
+            // Fetch the shopping lists and items from MongoDB
+            Timer.Sample phase = Timer.start(meterRegistry);
+            List<User> users = mongoTemplate.findAll(User.class);
+            List<ShoppingList> shoppingLists = mongoTemplate.findAll(ShoppingList.class);
+            List<ShoppingItem> shoppingItems = mongoTemplate.findAll(ShoppingItem.class);
+            List<ItemSet> itemSets = mongoTemplate.findAll(ItemSet.class);
+            List<Recipe> recipes = mongoTemplate.findAll(Recipe.class);
+            phase.stop(backupTimer("backup", "read"));
+
+            //Latest backup path
+            String latestBackupFilePath = "backup/shopping_backup.json";  // Modify the path as needed
+            File latestBackupFile = new File(latestBackupFilePath);
+            latestBackupFile.getParentFile().mkdirs();  // Ensure the folder exists
+
+            // Write the data to both the latest and archive backup files
+            // written next to it first and only moved in place while the lease is still ours,
+            // a node that stalled past its lease must not overwrite the backup of the node that took over
+            phase = Timer.start(meterRegistry);
+            File pendingBackupFile = new File(latestBackupFilePath + "." + lease.token() + ".tmp");
+            writeBackupToFile(pendingBackupFile, users, shoppingLists, shoppingItems, itemSets, recipes, objectMapper);
+            if (!jobLeaseService.isCurrent(lease)) {
+                pendingBackupFile.delete();
+                log.warn("Backup lease {} was lost, the backup is discarded.", lease.token());
+                return;
             }
+            Files.move(pendingBackupFile.toPath(), latestBackupFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            phase.stop(backupTimer("backup", "write"));
+
+            // Backup GridFS files
+            phase = Timer.start(meterRegistry);
+            saveGridFSFiles();
+            phase.stop(backupTimer("backup", "files"));
+            total.stop(backupTimer("backup", "total"));
+            System.out.println("Backup completed successfully!");
+
+        } catch (Exception e) {
+            throw new RuntimeException("Backup failed",e);
         }
     }
 
@@ -130,9 +168,13 @@ public class BackendApplication {
                 File backupFile = new File(backupFilePath);
 
                 if (backupFile.exists()) {
+                    Timer.Sample total = Timer.start(meterRegistry);
+
                     // Deserialize the JSON backup file
+                    Timer.Sample phase = Timer.start(meterRegistry);
                     FileReader fileReader = new FileReader(backupFile);
                     BackupData backupData = objectMapper.readValue(fileReader, BackupData.class);
+                    phase.stop(backupTimer("restore", "read"));
 
                     // Post-process to normalize data
                     for (ShoppingItem item : backupData.getShoppingItems()) {
@@ -147,6 +189,7 @@ public class BackendApplication {
                     }
 
                     // Restore the shopping lists and items into MongoDB
+                    phase = Timer.start(meterRegistry);
                     mongoTemplate.dropCollection(User.class);
                     mongoTemplate.dropCollection(ShoppingList.class);  // Optionally clear existing data before restoring
                     mongoTemplate.dropCollection(ShoppingItem.class);
@@ -158,8 +201,10 @@ public class BackendApplication {
                     mongoTemplate.insertAll(backupData.getShoppingItems());
                     mongoTemplate.insertAll(backupData.getItemSets());
                     mongoTemplate.insertAll(backupData.getRecipes());
+                    phase.stop(backupTimer("restore", "documents"));
 
                     // Restore GridFS files with original ObjectId
+                    phase = Timer.start(meterRegistry);
                     File filesDir = new File("backup/files");
                     if (filesDir.exists() && filesDir.isDirectory()) {
                         File[] files = filesDir.listFiles();
@@ -200,6 +245,8 @@ public class BackendApplication {
                             mongoTemplate.insertAll(backupData.getRecipes());
                         }
                     }
+                    phase.stop(backupTimer("restore", "files"));
+                    total.stop(backupTimer("restore", "total"));
 
                     System.out.println("Backup loaded successfully!");
                 } else {
@@ -212,16 +259,27 @@ public class BackendApplication {
         }
     }
 
+    // the backup of a few minutes ago (e.g. the one at startup) does not keep the final one from running
     @PreDestroy
     public void onShutdown() {
         if (backupDB) {
             System.out.println("Application is shutting down. Performing final backup...");
-            performBackup();
+            if (!jobLeaseService.runExclusivelyIgnoringOwnHold("BACKUP", this::backup)) {
+                log.warn("Final backup skipped, the backup is running or another node holds its lease.");
+            }
         }
     }
 
+    // duration of one phase of a backup or restore, the app blocks its database for that long
+    private Timer backupTimer(String operation, String phase) {
+        return Timer.builder("backup.duration")
+                .tag("operation", operation)
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
     // Helper method to write backup data to a file
-    private void writeBackupToFile(File backupFile, List<User> users, List<ShoppingList> shoppingLists,
+    static void writeBackupToFile(File backupFile, List<User> users, List<ShoppingList> shoppingLists,
                                    List<ShoppingItem> shoppingItems, List<ItemSet> itemSets, List<Recipe> recipes,
                                    ObjectMapper objectMapper) throws IOException {
         try (FileWriter writer = new FileWriter(backupFile)) {
@@ -0,0 +1,28 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// executor for BackgroundJobService, small on purpose so cascades do not compete with requests for the database
+// in virtual thread mode the pool keeps its size, only the workers are virtual threads
+@Configuration
+public class BackgroundJobConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor backgroundJobExecutor(@Value("${jobs.threads:1}") int threads,
+                                                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("background-job-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("background-job-", 1).factory());
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
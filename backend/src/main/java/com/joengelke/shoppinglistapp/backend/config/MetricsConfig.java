@@ -0,0 +1,38 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import com.joengelke.shoppinglistapp.backend.service.ItemNameSuggestionIndex;
+import com.joengelke.shoppinglistapp.backend.service.RecipeCategoryIndex;
+import com.joengelke.shoppinglistapp.backend.service.RecipeIngredientIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// http, mongo driver, connection pool and jvm metrics are bound by spring boot,
+// this adds the per request mongo command counter and the entry counts of the in-memory indexes that answer the hot read paths
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandCounterCustomizer(MongoCommandCounter mongoCommandCounter) {
+        return builder -> builder.addCommandListener(mongoCommandCounter);
+    }
+
+    @Bean
+    public MeterBinder inMemoryIndexMetrics(RecipeCategoryIndex recipeCategoryIndex,
+                                            RecipeIngredientIndex recipeIngredientIndex,
+                                            ItemNameSuggestionIndex itemNameSuggestionIndex) {
+        return registry -> {
+            Gauge.builder("index.entries", recipeCategoryIndex, RecipeCategoryIndex::size)
+                    .tag("index", "recipe-categories")
+                    .register(registry);
+            Gauge.builder("index.entries", recipeIngredientIndex, RecipeIngredientIndex::size)
+                    .tag("index", "recipe-ingredients")
+                    .register(registry);
+            Gauge.builder("index.entries", itemNameSuggestionIndex, ItemNameSuggestionIndex::size)
+                    .tag("index", "item-name-suggestions")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// counts the mongo commands of every request, runs before the security filters so the user lookup is included
+// the counts go to metrics per endpoint, a warning is logged when a request needs more commands than the budget
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MongoCommandCountFilter extends OncePerRequestFilter {
+
+    private final MongoCommandCounter mongoCommandCounter;
+    private final MeterRegistry meterRegistry;
+    private final int commandBudget;
+
+    public MongoCommandCountFilter(MongoCommandCounter mongoCommandCounter, MeterRegistry meterRegistry,
+                                   @Value("${mongo.command-budget:20}") int commandBudget) {
+        this.mongoCommandCounter = mongoCommandCounter;
+        this.meterRegistry = meterRegistry;
+        this.commandBudget = commandBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        mongoCommandCounter.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MongoCommandCounter.Stats stats = mongoCommandCounter.end();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, MongoCommandCounter.Stats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.mongo.commands")
+                .description("Mongo commands issued by one request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getCommands());
+        Timer.builder("http.server.requests.mongo.time")
+                .description("Time one request spent waiting for mongo")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getCommands() > commandBudget) {
+            log.warn("{} {} issued {} mongo commands ({} ms), budget is {}",
+                    request.getMethod(), uri, stats.getCommands(), stats.getMillis(), commandBudget);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// counts the mongo commands and their time per request thread
+// the sync driver calls the listener on the thread that issued the command, so a ThreadLocal is enough
+@Component
+public class MongoCommandCounter implements CommandListener {
+
+    private final ThreadLocal<Stats> current = new ThreadLocal<>();
+
+    public Stats begin() {
+        Stats stats = new Stats();
+        current.set(stats);
+        return stats;
+    }
+
+    // null outside of begin and end
+    public Stats current() {
+        return current.get();
+    }
+
+    public Stats end() {
+        Stats stats = current.get();
+        current.remove();
+        return stats;
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(long elapsedNanos) {
+        Stats stats = current.get();
+        if (stats != null) {
+            stats.commands++;
+            stats.nanos += elapsedNanos;
+        }
+    }
+
+    public static class Stats {
+
+        private int commands;
+        private long nanos;
+
+        public int getCommands() {
+            return commands;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// adds the mongo commands of the request so far to the response, right before the body is written
+@ControllerAdvice
+public class MongoCommandHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String COMMANDS_HEADER = "X-Mongo-Commands";
+    public static final String TIME_HEADER = "X-Mongo-Time-Ms";
+
+    private final MongoCommandCounter mongoCommandCounter;
+
+    public MongoCommandHeaderAdvice(MongoCommandCounter mongoCommandCounter) {
+        this.mongoCommandCounter = mongoCommandCounter;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        MongoCommandCounter.Stats stats = mongoCommandCounter.current();
+        if (stats != null) {
+            response.getHeaders().set(COMMANDS_HEADER, String.valueOf(stats.getCommands()));
+            response.getHeaders().set(TIME_HEADER, String.valueOf(stats.getMillis()));
+        }
+        return body;
+    }
+}
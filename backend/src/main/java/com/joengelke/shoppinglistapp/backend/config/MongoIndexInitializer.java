@@ -0,0 +1,115 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import com.joengelke.shoppinglistapp.backend.model.JobLease;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItemActivity;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// creates the indexes the services rely on
+// runs after the CommandLineRunners, because loading a backup drops the collections including their indexes
+@Slf4j
+@Component
+public class MongoIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+    private final ShoppingListService shoppingListService;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate, ShoppingListService shoppingListService) {
+        this.mongoTemplate = mongoTemplate;
+        this.shoppingListService = shoppingListService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        ensureRecipeIndexes();
+        ensureCascadeIndexes();
+        ensureShoppingItemIndexes();
+        ensureJobLeaseIndexes();
+        log.info("MongoDB indexes ensured.");
+    }
+
+    private void ensureRecipeIndexes() {
+        IndexOperations recipeIndexes = mongoTemplate.indexOps(Recipe.class);
+
+        // marketplace feed: one index per $or branch (public / shared with user), each one matching the sort order
+        recipeIndexes.ensureIndex(compoundIndex("visibility_createdAt",
+                new Document("visibility", 1).append("createdAt", -1).append("_id", -1)));
+        recipeIndexes.ensureIndex(compoundIndex("sharedWith_visibility_createdAt",
+                new Document("sharedWithUserIds", 1).append("visibility", 1).append("createdAt", -1).append("_id", -1)));
+        recipeIndexes.ensureIndex(compoundIndex("visibility_name",
+                new Document("visibility", 1).append("name", 1).append("_id", 1)));
+        recipeIndexes.ensureIndex(compoundIndex("sharedWith_visibility_name",
+                new Document("sharedWithUserIds", 1).append("visibility", 1).append("name", 1).append("_id", 1)));
+
+        // recipe search, weights rank matches in the name above categories, ingredients and free text
+        recipeIndexes.ensureIndex(TextIndexDefinition.builder()
+                .named("recipe_text")
+                .withDefaultLanguage("german")
+                .onField("name", 10F)
+                .onField("categories", 5F)
+                .onField("itemSet.itemList.name", 3F)
+                .onField("description", 2F)
+                .onField("instructions")
+                .build());
+    }
+
+    // arrays and owner fields the account deletion and the $pull cascades select by
+    private void ensureCascadeIndexes() {
+        mongoTemplate.indexOps(ShoppingList.class).ensureIndex(new Index("userIds", Sort.Direction.ASC).named("userIds"));
+        mongoTemplate.indexOps(User.class).ensureIndex(new Index("recipeIds", Sort.Direction.ASC).named("recipeIds"));
+        mongoTemplate.indexOps(Recipe.class).ensureIndex(compoundIndex("creatorId_visibility",
+                new Document("creatorId", 1).append("visibility", 1)));
+        mongoTemplate.indexOps(ShoppingItemActivity.class).ensureIndex(new Index("userId", Sort.Direction.ASC).named("userId"));
+        mongoTemplate.indexOps(ShoppingItemActivity.class).ensureIndex(new Index("listId", Sort.Direction.ASC).named("listId"));
+        // latest activity of an item, ItemNameSuggestionIndex looks it up for item changes of other nodes
+        mongoTemplate.indexOps(ShoppingItemActivity.class).ensureIndex(compoundIndex("itemId_timestamp",
+                new Document("itemId", 1).append("timestamp", -1)));
+        mongoTemplate.indexOps(ShoppingList.class).ensureIndex(new Index("deletedAt", Sort.Direction.ASC).named("deletedAt").sparse());
+    }
+
+    // every background job run takes a lease of its own, they are removed a day after they expired
+    // (long after the minimum hold, and a node can not stall that long and still hold one)
+    private void ensureJobLeaseIndexes() {
+        mongoTemplate.indexOps(JobLease.class).ensureIndex(new Index("expiresAt", Sort.Direction.ASC).named("expiresAt")
+                .expire(Duration.ofDays(1)));
+    }
+
+    // sorted item pages of one list, checked is queried with $in so each index serves the filtered and the unfiltered order
+    // the collation has to match the one of the queries, otherwise the string comparison on listId can not use the index
+    private void ensureShoppingItemIndexes() {
+        IndexOperations itemIndexes = mongoTemplate.indexOps(ShoppingItem.class);
+        Collation collation = shoppingListService.itemCollation();
+        itemIndexes.ensureIndex(compoundIndex("listId_checked_name",
+                new Document("listId", 1).append("checked", 1).append("name", 1).append("_id", 1)).collation(collation));
+        itemIndexes.ensureIndex(compoundIndex("listId_checked_checkedAt",
+                new Document("listId", 1).append("checked", 1).append("checkedAt", 1).append("_id", 1)).collation(collation));
+        itemIndexes.ensureIndex(compoundIndex("listId_checked_editedAt",
+                new Document("listId", 1).append("checked", 1).append("editedAt", 1).append("_id", 1)).collation(collation));
+        // tag filter of the item pages and the items with a tag of the tag grouping
+        itemIndexes.ensureIndex(compoundIndex("listId_tags",
+                new Document("listId", 1).append("tags", 1)).collation(collation));
+    }
+
+    private CompoundIndexDefinition compoundIndex(String name, Document keys) {
+        CompoundIndexDefinition definition = new CompoundIndexDefinition(keys);
+        definition.named(name);
+        return definition;
+    }
+}
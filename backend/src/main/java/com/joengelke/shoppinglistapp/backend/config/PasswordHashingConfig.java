@@ -0,0 +1,30 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// executor for the BCrypt hashing of login and registration, used by PasswordHashingService
+// pool and queue are bounded, a burst of logins after a restart waits here instead of taking the request threads
+// queue depth, active threads and completed hashes are published as executor.* with name=passwordHashing
+@Configuration
+public class PasswordHashingConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${password.hashing.threads:2}") int threads,
+                                                          @Value("${password.hashing.queue-capacity:100}") int queueCapacity,
+                                                          MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "passwordHashing", Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,20 @@
+package com.joengelke.shoppinglistapp.backend.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// CBOR as a binary alternative to JSON, chosen by the client with Accept: application/cbor
+// and accepted as request body with Content-Type: application/cbor
+// built from the same builder as the JSON mapper, so dates and the other spring.jackson settings are written the same way
+// replaces the default CBOR converter in its place after the JSON one, so JSON stays the default for Accept: */*
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+}
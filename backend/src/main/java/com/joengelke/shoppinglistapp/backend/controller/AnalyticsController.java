@@ -6,6 +6,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -49,4 +50,15 @@ public class AnalyticsController {
         List<String> nameList = analyticsService.getActivityNames(shoppingListId);
         return ResponseEntity.ok(nameList);
     }
+
+    @GetMapping("/suggestions")
+    public ResponseEntity<?> getItemNameSuggestions(
+            @RequestParam(required = false) String shoppingListId,
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestHeader("Authorization") String header
+    ) {
+        List<String> suggestions = analyticsService.getItemNameSuggestions(header, shoppingListId, prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
 }
@@ -4,6 +4,7 @@ import com.joengelke.shoppinglistapp.backend.dto.RegisterRequest;
 import com.joengelke.shoppinglistapp.backend.model.User;
 import com.joengelke.shoppinglistapp.backend.repository.UserRepository;
 import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.joengelke.shoppinglistapp.backend.service.PasswordHashingService;
 import com.joengelke.shoppinglistapp.backend.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,13 +12,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -28,35 +28,46 @@ public class AuthController {
     private final UserRepository userRepository;
     private final JwtTokenProvider jwtTokenProvider;
     private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
 
     @Autowired
     public AuthController(PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager,
-                          UserRepository userRepository, JwtTokenProvider jwtTokenProvider, UserService userService) {
+                          UserRepository userRepository, JwtTokenProvider jwtTokenProvider, UserService userService,
+                          PasswordHashingService passwordHashingService) {
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.jwtTokenProvider = jwtTokenProvider;
         this.userService = userService;
+        this.passwordHashingService = passwordHashingService;
     }
 
+    // the password is hashed on the password hashing executor, the request thread is released meanwhile
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody RegisterRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Username already taken!")); // error code = 409
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Username already taken!"))); // error code = 409
         }
-        User newUser = userService.createUser(request.getUsername(), passwordEncoder.encode(request.getPassword()));
-        return ResponseEntity.ok(Map.of("username", newUser.getUsername())); // return JSON object with username
+        return passwordHashingService.submit("register", () -> passwordEncoder.encode(request.getPassword()))
+                .thenApply(encodedPassword -> {
+                    User newUser = userService.createUser(request.getUsername(), encodedPassword);
+                    return ResponseEntity.ok(Map.of("username", newUser.getUsername())); // return JSON object with username
+                });
     }
 
+    // authenticate compares the BCrypt hash and rehashes it when the cost was raised, both on the hashing executor
+    // the token is the result, no security context is set since the next requests authenticate with it
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody User user) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword()));
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        User fullUser = userRepository.findByUsername(user.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        String token = jwtTokenProvider.generateToken(authentication, fullUser.getId());
-        return ResponseEntity.ok(Map.of("token", token));
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody User user) {
+        return passwordHashingService.submit("login", () -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword())))
+                .thenApply(authentication -> {
+                    User fullUser = userRepository.findByUsername(user.getUsername())
+                            .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+                    String token = jwtTokenProvider.generateToken(authentication, fullUser.getId(), fullUser.getTokenVersion());
+                    return ResponseEntity.ok(Map.of("token", token));
+                });
     }
 
     // checks if server is available 
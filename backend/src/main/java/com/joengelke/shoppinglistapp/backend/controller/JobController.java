@@ -0,0 +1,33 @@
+package com.joengelke.shoppinglistapp.backend.controller;
+
+import com.joengelke.shoppinglistapp.backend.model.BackgroundJob;
+import com.joengelke.shoppinglistapp.backend.service.BackgroundJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final BackgroundJobService backgroundJobService;
+
+    public JobController(BackgroundJobService backgroundJobService) {
+        this.backgroundJobService = backgroundJobService;
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@RequestHeader("Authorization") String header, @PathVariable String jobId) {
+        try {
+            BackgroundJob job = backgroundJobService.getJob(header, jobId);
+            return ResponseEntity.ok(job);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.joengelke.shoppinglistapp.backend.controller;
+
+import com.joengelke.shoppinglistapp.backend.model.BackgroundJob;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.joengelke.shoppinglistapp.backend.service.OrphanSweepService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/maintenance")
+public class MaintenanceController {
+
+    private final OrphanSweepService orphanSweepService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    public MaintenanceController(OrphanSweepService orphanSweepService, JwtTokenProvider jwtTokenProvider) {
+        this.orphanSweepService = orphanSweepService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    // result of the last sweep, the progress counters hold the orphans found, deleted and the reclaimed bytes
+    @GetMapping("/orphans")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getLastOrphanSweep() {
+        BackgroundJob job = orphanSweepService.getLastSweep();
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No orphan sweep has run yet");
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @PostMapping("/orphans")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> startOrphanSweep(
+            @RequestHeader("Authorization") String header,
+            @RequestParam(defaultValue = "false") boolean delete) {
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        BackgroundJob job = orphanSweepService.startSweep(userId, delete);
+        return ResponseEntity.accepted().body(job);
+    }
+}
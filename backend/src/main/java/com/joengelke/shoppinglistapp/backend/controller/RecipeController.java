@@ -1,8 +1,12 @@
 package com.joengelke.shoppinglistapp.backend.controller;
 
 import com.joengelke.shoppinglistapp.backend.dto.FileResourceDTO;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeFeedPage;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeMatch;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeSummary;
 import com.joengelke.shoppinglistapp.backend.model.ItemSet;
 import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.RecipeSortOption;
 import com.joengelke.shoppinglistapp.backend.model.Visibility;
 import com.joengelke.shoppinglistapp.backend.service.RecipeService;
 import org.springframework.core.io.ByteArrayResource;
@@ -18,6 +22,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/recipe")
@@ -52,6 +57,78 @@ public class RecipeController {
         return ResponseEntity.ok(recipeList);
     }
 
+    @GetMapping("/marketplace/feed")
+    public ResponseEntity<?> getMarketplaceFeed(
+            @RequestParam(required = false) RecipeSortOption sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestHeader("Authorization") String header
+    ) {
+        try {
+            RecipeFeedPage feedPage = recipeService.getMarketplaceFeed(header, sort, cursor, limit);
+            return ResponseEntity.ok(feedPage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchRecipes(
+            @RequestParam("q") String text,
+            @RequestParam(value = "category", required = false) List<String> categories,
+            @RequestParam(required = false) Visibility visibility,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader("Authorization") String header
+    ) {
+        try {
+            List<RecipeSummary> recipeList = recipeService.searchRecipes(header, text, categories, visibility, page, size);
+            return ResponseEntity.ok(recipeList);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/match")
+    public ResponseEntity<?> matchRecipesByItemNames(
+            @RequestBody List<String> itemNames,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestHeader("Authorization") String header
+    ) {
+        List<RecipeMatch> matches = recipeService.matchRecipesByItemNames(header, itemNames, limit);
+        return ResponseEntity.ok(matches);
+    }
+
+    @GetMapping("/match/shoppinglist/{shoppingListId}")
+    public ResponseEntity<?> matchRecipesByShoppingList(
+            @PathVariable String shoppingListId,
+            @RequestParam(defaultValue = "false") boolean includeChecked,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestHeader("Authorization") String header
+    ) {
+        try {
+            List<RecipeMatch> matches = recipeService.matchRecipesByShoppingList(header, shoppingListId, includeChecked, limit);
+            return ResponseEntity.ok(matches);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{recipeId}")
+    public ResponseEntity<?> getRecipeById(
+            @PathVariable String recipeId,
+            @RequestHeader("Authorization") String header
+    ) {
+        try {
+            Recipe recipe = recipeService.getRecipeById(header, recipeId);
+            return ResponseEntity.ok(recipe);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        }
+    }
+
     @PostMapping("")
     public ResponseEntity<?> createRecipe(
             @RequestBody Recipe recipe,
@@ -138,9 +215,11 @@ public class RecipeController {
 
     @GetMapping("/categories-popularity")
     public ResponseEntity<?> getRecipeCategoriesByPopularity(
+            @RequestParam(required = false) Visibility visibility,
+            @RequestParam(defaultValue = "false") boolean mine,
             @RequestHeader("Authorization") String header
     ) {
-        List<String> categoriesByPopularity = recipeService.getRecipeCategoriesByPopularity();
+        List<String> categoriesByPopularity = recipeService.getRecipeCategoriesByPopularity(header, visibility, mine);
         return ResponseEntity.ok(categoriesByPopularity);
     }
 
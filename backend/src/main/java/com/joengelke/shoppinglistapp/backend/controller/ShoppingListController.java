@@ -1,11 +1,18 @@
 package com.joengelke.shoppinglistapp.backend.controller;
 
+import com.joengelke.shoppinglistapp.backend.dto.TagGroup;
 import com.joengelke.shoppinglistapp.backend.dto.UserResponse;
+import com.joengelke.shoppinglistapp.backend.model.BackgroundJob;
 import com.joengelke.shoppinglistapp.backend.model.ItemSet;
 import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItemSortOption;
 import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingListView;
 import com.joengelke.shoppinglistapp.backend.model.User;
 import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import com.joengelke.shoppinglistapp.backend.service.UserDeletionService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,9 +29,11 @@ import java.util.Map;
 public class ShoppingListController {
 
     private final ShoppingListService shoppingListService;
+    private final UserDeletionService userDeletionService;
 
-    public ShoppingListController(ShoppingListService shoppingListService) {
+    public ShoppingListController(ShoppingListService shoppingListService, UserDeletionService userDeletionService) {
         this.shoppingListService = shoppingListService;
+        this.userDeletionService = userDeletionService;
     }
 
     @PostMapping
@@ -58,6 +67,12 @@ public class ShoppingListController {
         return ResponseEntity.ok(updatedShoppingList);
     }
 
+    @GetMapping("/{shoppingListId}/view")
+    public ResponseEntity<?> getShoppingListView(@PathVariable String shoppingListId) {
+        ShoppingListView shoppingListView = shoppingListService.getShoppingListView(shoppingListId);
+        return ResponseEntity.ok(shoppingListView);
+    }
+
     @GetMapping("/{shoppingListId}/user")
     public ResponseEntity<?> getShoppingListUser(@PathVariable String shoppingListId) {
         List<UserResponse> users = shoppingListService.getShoppingListUser(shoppingListId);
@@ -81,19 +96,41 @@ public class ShoppingListController {
     }
 
     @DeleteMapping("/{shoppingListId}")
-    public ResponseEntity<?> deleteShoppingList(@PathVariable String shoppingListId) {
-        shoppingListService.deleteShoppingList(shoppingListId);
-        return ResponseEntity.ok(Map.of("message", "Shopping list deleted successfully"));
+    public ResponseEntity<?> deleteShoppingList(@RequestHeader("Authorization") String header, @PathVariable String shoppingListId) {
+        BackgroundJob job = shoppingListService.deleteShoppingList(header, shoppingListId);
+        return ResponseEntity.accepted().body(Map.of("message", "Shopping list deleted successfully", "jobId", job.getId()));
     }
 
     /*
     ITEMLIST CHANGES
      */
 
+    // without parameters all items in stored order, otherwise sorted and filtered by the database
+    // with a limit only that page is returned and X-Total-Count holds the number of matching items
     @GetMapping("/{shoppingListId}/items")
-    public ResponseEntity<?> getItemsByShoppingList(@PathVariable String shoppingListId) {
-        List<ShoppingItem> itemList = shoppingListService.getItemsByShoppingList(shoppingListId);
-        return ResponseEntity.ok(itemList);
+    public ResponseEntity<?> getItemsByShoppingList(
+            @PathVariable String shoppingListId,
+            @RequestParam(required = false) ShoppingItemSortOption sort,
+            @RequestParam(required = false) Sort.Direction direction,
+            @RequestParam(required = false) Boolean checked,
+            @RequestParam(required = false) String tag,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer limit) {
+        if (sort == null && direction == null && checked == null && tag == null && limit == null) {
+            List<ShoppingItem> itemList = shoppingListService.getItemsByShoppingList(shoppingListId);
+            return ResponseEntity.ok(itemList);
+        }
+        Page<ShoppingItem> items = shoppingListService.getItemsByShoppingList(shoppingListId, sort, direction, checked, tag, page, limit);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(items.getTotalElements()))
+                .body(items.getContent());
+    }
+
+    @GetMapping("/{shoppingListId}/tags")
+    public ResponseEntity<?> getItemsGroupedByTag(@PathVariable String shoppingListId,
+                                                  @RequestParam(defaultValue = "false") boolean countsOnly) {
+        List<TagGroup> tagGroups = shoppingListService.getItemsGroupedByTag(shoppingListId, countsOnly);
+        return ResponseEntity.ok(tagGroups);
     }
 
     @PutMapping("/{shoppingListId}/item")
@@ -154,8 +191,9 @@ public class ShoppingListController {
      */
 
     @DeleteMapping("/user/{userId}")
-    public ResponseEntity<?> deleteUser(@PathVariable String userId) {
-        shoppingListService.removeUserFromAllShoppingLists(userId);
-        return ResponseEntity.ok(Map.of("message", "User successfully deleted!"));
+    public ResponseEntity<?> deleteUser(@RequestHeader("Authorization") String header, @PathVariable String userId) {
+        // lists, recipes and activity of the user are removed in the background, the job id can be polled at /api/jobs
+        BackgroundJob job = userDeletionService.startUserDeletion(header, userId);
+        return ResponseEntity.accepted().body(Map.of("message", "User deletion started", "jobId", job.getId()));
     }
 }
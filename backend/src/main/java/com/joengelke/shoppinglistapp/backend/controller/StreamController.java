@@ -0,0 +1,43 @@
+package com.joengelke.shoppinglistapp.backend.controller;
+
+import com.joengelke.shoppinglistapp.backend.model.ItemSet;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.service.ReactiveReadService;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+// streaming versions of the read-heavy endpoints, the request thread is released while mongo is queried
+// "Accept: application/x-ndjson" streams one document per line with backpressure
+// otherwise the result is a JSON array, which Spring MVC collects into a list before writing it, so only NDJSON is streamed
+@RestController
+@RequestMapping("/api/stream")
+public class StreamController {
+
+    private final ReactiveReadService reactiveReadService;
+
+    public StreamController(ReactiveReadService reactiveReadService) {
+        this.reactiveReadService = reactiveReadService;
+    }
+
+    @GetMapping("/shoppinglist")
+    public Flux<ShoppingList> getShoppingListsByUserId(@RequestHeader("Authorization") String header) {
+        return reactiveReadService.getShoppingListsByUserId(header);
+    }
+
+    @GetMapping("/shoppinglist/{shoppingListId}/items")
+    public Flux<ShoppingItem> getItemsByShoppingList(@PathVariable String shoppingListId) {
+        return reactiveReadService.getItemsByShoppingList(shoppingListId);
+    }
+
+    @GetMapping("/shoppinglist/{shoppingListId}/itemsets")
+    public Flux<ItemSet> getItemSetsByShoppingList(@PathVariable String shoppingListId) {
+        return reactiveReadService.getItemSetsByShoppingList(shoppingListId);
+    }
+
+    @GetMapping("/recipe/marketplace")
+    public Flux<Recipe> getAllMarketplaceRecipesByUserId(@RequestHeader("Authorization") String header) {
+        return reactiveReadService.getAllMarketplaceRecipesByUserId(header);
+    }
+}
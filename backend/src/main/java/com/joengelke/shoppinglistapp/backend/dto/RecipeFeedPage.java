@@ -0,0 +1,18 @@
+package com.joengelke.shoppinglistapp.backend.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class RecipeFeedPage {
+    private List<RecipeSummary> recipes;
+    private String nextCursor; // null if there are no more recipes
+
+    public RecipeFeedPage(List<RecipeSummary> recipes, String nextCursor) {
+        this.recipes = recipes;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.joengelke.shoppinglistapp.backend.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class RecipeMatch {
+    private RecipeSummary recipe;
+    private int matchedIngredients;
+    private List<String> missingIngredients;
+    private double coverage; // share of the recipe ingredients that are available, 1.0 = nothing missing
+
+    public RecipeMatch(RecipeSummary recipe, int matchedIngredients, List<String> missingIngredients, double coverage) {
+        this.recipe = recipe;
+        this.matchedIngredients = matchedIngredients;
+        this.missingIngredients = missingIngredients;
+        this.coverage = coverage;
+    }
+}
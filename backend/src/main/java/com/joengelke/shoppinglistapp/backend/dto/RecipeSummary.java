@@ -0,0 +1,30 @@
+package com.joengelke.shoppinglistapp.backend.dto;
+
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+public class RecipeSummary {
+    private String id;
+    private String name;
+    private String creatorUsername;
+    private List<String> categories;
+    private Instant createdAt;
+    private String thumbnailFileId; // first recipe file, null if the recipe has no files
+
+    public RecipeSummary(Recipe recipe) {
+        this.id = recipe.getId();
+        this.name = recipe.getName();
+        this.creatorUsername = recipe.getCreatorUsername();
+        this.categories = recipe.getCategories() != null ? recipe.getCategories() : List.of();
+        this.createdAt = recipe.getCreatedAt();
+        this.thumbnailFileId = recipe.getRecipeFileIds() != null && !recipe.getRecipeFileIds().isEmpty()
+                ? recipe.getRecipeFileIds().get(0)
+                : null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.joengelke.shoppinglistapp.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class TagGroup {
+    private String tag;
+    private int count;
+    private int uncheckedCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ShoppingItem> items; // null when only the counts were requested
+
+    public TagGroup() {}
+}
@@ -0,0 +1,47 @@
+package com.joengelke.shoppinglistapp.backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// long running server side work, persisted so the client can poll the progress and unfinished jobs resume after a restart
+@Getter
+@Setter
+@Document
+public class BackgroundJob {
+
+    @Id
+    private String id;
+    private String type; // USER_DELETION
+    private String subjectId; // id of the document the job works on
+    private String requestedBy;
+    private Status status;
+    private String step;
+    private Map<String, Long> progress; // counter name -> processed documents
+    private String error;
+    private Integer attempts; // runs started, a failed job is started again until jobs.max-attempts
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+
+    public BackgroundJob(String type, String subjectId, String requestedBy) {
+        this.type = type;
+        this.subjectId = subjectId;
+        this.requestedBy = requestedBy;
+        this.status = Status.PENDING;
+        this.progress = new LinkedHashMap<>();
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public BackgroundJob(){}
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+}
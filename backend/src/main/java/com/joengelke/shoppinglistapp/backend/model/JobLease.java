@@ -0,0 +1,25 @@
+package com.joengelke.shoppinglistapp.backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// one document per scheduled job, the node named in owner may run the job until expiresAt
+// token grows with every new acquisition, so work of a node that lost its lease can be told apart from the current one
+@Getter
+@Setter
+@Document
+public class JobLease {
+
+    @Id
+    private String id; // job name
+    private String owner; // node id
+    private long token;
+    private Instant acquiredAt;
+    private Instant expiresAt;
+
+    public JobLease(){}
+}
@@ -0,0 +1,7 @@
+package com.joengelke.shoppinglistapp.backend.model;
+
+public enum RecipeSortOption {
+    NEWEST,
+    OLDEST,
+    NAME
+}
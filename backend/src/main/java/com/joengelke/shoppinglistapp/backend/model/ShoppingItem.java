@@ -30,6 +30,7 @@ public class ShoppingItem {
     private String note;
     private Instant editedAt;
     private String editedBy;
+    private String listId; // shopping list that holds the item, for the sorted and paged item queries
 
     public ShoppingItem(String name, List<String> tags, Double amount, String unit, String note, String editedBy) {
         this.name = name;
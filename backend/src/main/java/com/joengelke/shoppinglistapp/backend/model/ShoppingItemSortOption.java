@@ -0,0 +1,7 @@
+package com.joengelke.shoppinglistapp.backend.model;
+
+public enum ShoppingItemSortOption {
+    NAME,
+    CHECKED_AT,
+    EDITED_AT
+}
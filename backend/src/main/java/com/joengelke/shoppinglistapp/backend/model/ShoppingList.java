@@ -21,6 +21,7 @@ public class ShoppingList {
     private List<String> itemIds;
     private List<String> itemSetIds;
     private List<String> userIds;
+    private Instant deletedAt; // set by a delete, the contents are purged in the background
 
     public ShoppingList(String id, String name) {
         this.id = id;
@@ -0,0 +1,56 @@
+package com.joengelke.shoppinglistapp.backend.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// materialized read model of one shopping list, everything the client needs to open a list
+// derived from shoppingList, shoppingItem, itemSet and user, kept up to date by ShoppingListViewService
+@Getter
+@Setter
+@Document
+public class ShoppingListView {
+
+    @Id
+    private String id; // same id as the shopping list
+    private String name;
+    private Instant createdAt;
+    private List<ShoppingItem> items;
+    private List<ItemSet> itemSets;
+    private List<Member> members;
+    private Instant updatedAt;
+    private Long version; // raised by every change of the view, a rebuild only stores its snapshot if it did not move
+    private Instant builtAt; // null while a rebuild is in progress, the view is not complete yet
+
+    public ShoppingListView(ShoppingList shoppingList, List<ShoppingItem> items, List<ItemSet> itemSets, List<Member> members) {
+        this.id = shoppingList.getId();
+        this.name = shoppingList.getName();
+        this.createdAt = shoppingList.getCreatedAt();
+        this.items = items != null ? items : new ArrayList<>();
+        this.itemSets = itemSets != null ? itemSets : new ArrayList<>();
+        this.members = members != null ? members : new ArrayList<>();
+        this.updatedAt = Instant.now();
+        this.builtAt = this.updatedAt;
+    }
+
+    public ShoppingListView(){}
+
+    @Getter
+    @Setter
+    public static class Member {
+        private String userId;
+        private String username;
+
+        public Member(String userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+
+        public Member(){}
+    }
+}
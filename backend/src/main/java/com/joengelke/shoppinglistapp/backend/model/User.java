@@ -20,6 +20,7 @@ public class User {
     private String email;
     private List<String> roles; // ["USER","ADMIN"]
     private List<String> recipeIds;
+    private int tokenVersion; // raised when the tokens issued so far have to be revoked (roles, password, username)
 
     public User(String username, String password) {
         this.username = username;
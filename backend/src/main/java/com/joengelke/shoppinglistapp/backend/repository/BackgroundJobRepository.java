@@ -0,0 +1,16 @@
+package com.joengelke.shoppinglistapp.backend.repository;
+
+import com.joengelke.shoppinglistapp.backend.model.BackgroundJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BackgroundJobRepository extends MongoRepository<BackgroundJob, String> {
+    Optional<BackgroundJob> findFirstByTypeOrderByCreatedAtDesc(String type);
+
+    Optional<BackgroundJob> findFirstByTypeAndSubjectId(String type, String subjectId);
+
+    List<BackgroundJob> findAllByTypeAndStatusIn(String type, Collection<BackgroundJob.Status> statuses);
+}
@@ -1,14 +1,17 @@
 package com.joengelke.shoppinglistapp.backend.security;
 
 import com.joengelke.shoppinglistapp.backend.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -22,6 +25,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider jwtTokenProvider;
     @Autowired
     private UserService userService;
+    @Autowired
+    private TokenVersionTable tokenVersionTable;
+    // stateless: authorities from the token claims, revocation by the token version, no user lookup per request
+    // otherwise the user is loaded by the username of the token on every request
+    @Value("${security.jwt.stateless:true}")
+    private boolean stateless;
 
     // checks every http request for correct token, extract user details to identify user
     @Override
@@ -30,11 +39,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String token = extractJwtFromRequest(request);
 
-            if (token != null && jwtTokenProvider.validateToken(token)) {
-                String username = jwtTokenProvider.getUsernameFromToken(token);
-                // include authorities here later ?
-
-                UserDetails userDetails = userService.loadUserByUsername(username);
+            if (token != null) {
+                Claims claims = jwtTokenProvider.getValidatedClaims(token);
+                UserDetails userDetails = stateless ? userFromClaims(claims) : userService.loadUserByUsername(claims.getSubject());
 
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -57,6 +64,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
+    // a token of a deleted user or issued before a change of roles, password or username is revoked
+    private UserDetails userFromClaims(Claims claims) {
+        String userId = claims.get("userId", String.class);
+        if (userId == null || !tokenVersionTable.isCurrent(userId, jwtTokenProvider.getTokenVersion(claims))) {
+            throw new AuthenticationCredentialsNotFoundException("JWT was revoked");
+        }
+        return new User(claims.getSubject(), "", jwtTokenProvider.getAuthorities(claims));
+    }
+
     private String extractJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer")) {
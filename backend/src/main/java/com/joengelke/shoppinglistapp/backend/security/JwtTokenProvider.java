@@ -1,31 +1,48 @@
 package com.joengelke.shoppinglistapp.backend.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
-    @Value("${security.jwt-secret}")
-    private String secretKey;
-    @Value("${security.expiration-time}")
-    private long expirationTime;
+    private final Key signInKey;
+    private final long expirationTime;
+    private final JwtParser jwtParser;
+    private final Timer verifyTimer;
 
+    public JwtTokenProvider(@Value("${security.jwt-secret}") String secretKey,
+                            @Value("${security.expiration-time}") long expirationTime,
+                            MeterRegistry meterRegistry) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.expirationTime = expirationTime;
+        // the key and the parser are immutable, no need to build them for every token
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.verifyTimer = Timer.builder("jwt.verify")
+                .description("Time to verify the signature of a JWT and parse its claims")
+                .register(meterRegistry);
+    }
 
-    public String generateToken(Authentication authentication, String userId) {
+    public String generateToken(Authentication authentication, String userId, int tokenVersion) {
         String username = authentication.getName();
         String authorities = authentication.getAuthorities().stream(). // roles in here
                 map(GrantedAuthority::getAuthority).
@@ -38,56 +55,67 @@ public class JwtTokenProvider {
                 .setSubject(username)
                 .claim("userId", userId)
                 .claim("authorities", authorities)
+                .claim("tokenVersion", tokenVersion)
                 .setIssuedAt(Date.from(currentDate))
                 .setExpiration(Date.from(expireDate))
-                .signWith(getSignInKey(),SignatureAlgorithm.HS256)
+                .signWith(signInKey,SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (Exception e) {
             throw new AuthenticationCredentialsNotFoundException("JWT was expired or incorrect", e.fillInStackTrace());
         }
     }
 
+    // validates the token and returns its claims with a single parse
+    public Claims getValidatedClaims(String token) {
+        try {
+            return parseClaims(token);
+        } catch (Exception e) {
+            throw new AuthenticationCredentialsNotFoundException("JWT was expired or incorrect", e.fillInStackTrace());
+        }
+    }
+
+    // tokens issued before the version claim count as version 0
+    public int getTokenVersion(Claims claims) {
+        Integer tokenVersion = claims.get("tokenVersion", Integer.class);
+        return tokenVersion == null ? 0 : tokenVersion;
+    }
+
+    public List<SimpleGrantedAuthority> getAuthorities(Claims claims) {
+        String authorities = claims.get("authorities", String.class);
+        if (authorities == null || authorities.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(authorities.split(",")).map(SimpleGrantedAuthority::new).toList();
+    }
+
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public String getUserIdFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody().get("userId", String.class);
+        return parseClaims(token).get("userId", String.class);
     }
 
 
     public boolean isAdmin(String token) {
-        String authorities = Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .get("authorities", String.class);
+        String authorities = parseClaims(token).get("authorities", String.class);
 
         return authorities != null && Arrays.asList(authorities.split(","))
                 .contains("ROLE_ADMIN");
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private Claims parseClaims(String token) {
+        Timer.Sample sample = Timer.start();
+        try {
+            return jwtParser.parseClaimsJws(token).getBody();
+        } finally {
+            sample.stop(verifyTimer);
+        }
     }
 }
@@ -1,15 +1,50 @@
 package com.joengelke.shoppinglistapp.backend.security;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+@Slf4j
 @Configuration
 public class PasswordEncoderConfig {
 
+    // every step of the cost doubles the hashing time, 10 is the BCrypt default and never gone below
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 16;
+
+    // the cost is fixed, so it is the same on every node and after every restart
+    // stored hashes with a lower cost are rehashed on the next login, see UserService.updatePassword,
+    // so raising it makes the next login of every account cost both hashes and every later one the higher cost
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password.bcrypt.strength:10}") int strength,
+                                           @Value("${password.bcrypt.calibrate:false}") boolean calibrate,
+                                           @Value("${password.bcrypt.target-millis:250}") long targetMillis) {
+        if (strength < MIN_STRENGTH || strength > MAX_STRENGTH) {
+            throw new IllegalArgumentException("password.bcrypt.strength has to be between " + MIN_STRENGTH + " and " + MAX_STRENGTH + ": " + strength);
+        }
+        if (calibrate) {
+            recommend(strength, targetMillis);
+        }
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // only measures this machine and logs which cost would hit the target time, the configured cost is used either way
+    private static void recommend(int strength, long targetMillis) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        encoder.encode("calibration"); // warm up
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        double millis = fastest / 1_000_000.0;
+        int recommended = Math.clamp(MIN_STRENGTH + Math.round(Math.log(targetMillis / millis) / Math.log(2)), MIN_STRENGTH, MAX_STRENGTH);
+        log.info("BCrypt cost {} takes about {} ms per hash on this machine, cost {} would take about {} ms for the target of {} ms.",
+                strength, Math.round(millis * Math.pow(2, strength - MIN_STRENGTH)),
+                recommended, Math.round(millis * (1 << (recommended - MIN_STRENGTH))), targetMillis);
     }
 }
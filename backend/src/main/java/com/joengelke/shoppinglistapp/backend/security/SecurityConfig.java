@@ -1,6 +1,8 @@
 package com.joengelke.shoppinglistapp.backend.security;
 
+import com.joengelke.shoppinglistapp.backend.config.MongoCommandHeaderAdvice;
 import com.joengelke.shoppinglistapp.backend.service.UserService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,6 +44,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         //.requestMatchers("/**").permitAll() // Allow everyone to access everything
                         .requestMatchers("/api/auth/**").permitAll()
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll() // later dispatches of an already authorized request, e.g. streamed responses
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // only served on the management port
                         //.requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated() // All other endpoints require authentication
                 )
@@ -55,6 +59,7 @@ public class SecurityConfig {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userService);
         authenticationProvider.setPasswordEncoder(passwordEncoder);
+        authenticationProvider.setUserDetailsPasswordService(userService); // rehash on login when the BCrypt cost was raised
         return new ProviderManager(authenticationProvider);
     }
 
@@ -71,6 +76,7 @@ public class SecurityConfig {
         config.setAllowedOrigins(List.of("http://localhost:4200", "https://shopit.ddnss.de", "https://shopit-oracle.mooo.com"));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        config.setExposedHeaders(List.of(MongoCommandHeaderAdvice.COMMANDS_HEADER, MongoCommandHeaderAdvice.TIME_HEADER));
         config.setAllowCredentials(true);
 
         final UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
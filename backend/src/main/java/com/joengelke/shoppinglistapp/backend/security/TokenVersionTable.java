@@ -0,0 +1,65 @@
+package com.joengelke.shoppinglistapp.backend.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.service.CacheInvalidationBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+// current token version per user id, a token carrying an older version is revoked
+// filled on the first request of a user after startup, then the JWT filter needs no user lookup anymore
+// versions only go up, so a load racing with a change can not bring an old version back
+// changes of other nodes arrive through the CacheInvalidationBus and are loaded again on the next request
+// without the bus the entries expire after the ttl, so a token revoked on another node still works for at most that long
+@Slf4j
+@Component
+public class TokenVersionTable {
+
+    // deleted users, no token version matches it
+    private static final int REVOKED = Integer.MAX_VALUE;
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Integer> versions;
+
+    public TokenVersionTable(MongoTemplate mongoTemplate, CacheInvalidationBus cacheInvalidationBus,
+                             @Value("${security.jwt.token-version-ttl-seconds:30}") long ttlSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (!cacheInvalidationBus.isEnabled()) {
+            builder.expireAfterWrite(Duration.ofSeconds(ttlSeconds));
+            log.info("Cache invalidation disabled, token versions are loaded again after {} s.", ttlSeconds);
+        }
+        this.versions = builder.<String, Integer>build().asMap();
+        cacheInvalidationBus.subscribe("user", versions::remove, versions::clear);
+    }
+
+    public boolean isCurrent(String userId, int tokenVersion) {
+        Integer version = versions.get(userId);
+        if (version == null) {
+            version = versions.merge(userId, load(userId), Math::max);
+        }
+        return version == tokenVersion;
+    }
+
+    public void update(String userId, int version) {
+        versions.merge(userId, version, Math::max);
+    }
+
+    public void revoke(String userId) {
+        versions.put(userId, REVOKED);
+    }
+
+    private int load(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("tokenVersion");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user == null ? REVOKED : user.getTokenVersion();
+    }
+}
@@ -3,6 +3,7 @@ package com.joengelke.shoppinglistapp.backend.service;
 import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
 import com.joengelke.shoppinglistapp.backend.model.ShoppingItemActivity;
 import com.joengelke.shoppinglistapp.backend.repository.ShoppingItemActivityRepository;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
 import com.mongodb.lang.Nullable;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -17,10 +18,14 @@ public class AnalyticsService {
 
     private final ShoppingItemActivityRepository shoppingItemActivityRepository;
     private final MongoTemplate mongoTemplate;
+    private final ItemNameSuggestionIndex itemNameSuggestionIndex;
+    private final JwtTokenProvider jwtTokenProvider;
 
-    public AnalyticsService(ShoppingItemActivityRepository shoppingItemActivityRepository, MongoTemplate mongoTemplate) {
+    public AnalyticsService(ShoppingItemActivityRepository shoppingItemActivityRepository, MongoTemplate mongoTemplate, ItemNameSuggestionIndex itemNameSuggestionIndex, JwtTokenProvider jwtTokenProvider) {
         this.shoppingItemActivityRepository = shoppingItemActivityRepository;
         this.mongoTemplate = mongoTemplate;
+        this.itemNameSuggestionIndex = itemNameSuggestionIndex;
+        this.jwtTokenProvider = jwtTokenProvider;
     }
 
     public void addItemAnalyticsEvent(String shoppingListId, String userId, ShoppingItem shoppingItem, String actionType) {
@@ -38,6 +43,7 @@ public class AnalyticsService {
             itemActivity.setAmount(1);
         }
         shoppingItemActivityRepository.save(itemActivity);
+        itemNameSuggestionIndex.record(shoppingListId, userId, itemActivity.getName(), itemActivity.getTimestamp());
     }
 
     public List<ShoppingItemActivity> getAllShoppingItemActivities() {
@@ -79,4 +85,13 @@ public class AnalyticsService {
         Query query = new Query(Criteria.where("listId").is(shoppingListId));
         return mongoTemplate.findDistinct(query, "name", ShoppingItemActivity.class, String.class);
     }
+
+    // suggestions for the list if a list is given, otherwise across all lists of the user
+    public List<String> getItemNameSuggestions(String header, @Nullable String shoppingListId, String prefix, int limit) {
+        if (shoppingListId != null) {
+            return itemNameSuggestionIndex.suggestForList(shoppingListId, prefix, limit);
+        }
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        return itemNameSuggestionIndex.suggestForUser(userId, prefix, limit);
+    }
 }
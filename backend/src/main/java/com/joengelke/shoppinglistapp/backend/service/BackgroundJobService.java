@@ -0,0 +1,161 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.BackgroundJob;
+import com.joengelke.shoppinglistapp.backend.repository.BackgroundJobRepository;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// runs jobs on the background executor and persists their state and progress counters
+// every run holds the lease "job:<id>", so a job that is resumed by several nodes or again while it runs only runs once
+// a run first claims the job, so a finished job is not run again by a resume that was queued before it finished
+// a failed job is resumed until it has been started jobs.max-attempts times
+@Slf4j
+@Service
+public class BackgroundJobService {
+
+    private final BackgroundJobRepository backgroundJobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ThreadPoolTaskExecutor backgroundJobExecutor;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final JobLeaseService jobLeaseService;
+    private final int maxAttempts;
+
+    public BackgroundJobService(BackgroundJobRepository backgroundJobRepository, MongoTemplate mongoTemplate, ThreadPoolTaskExecutor backgroundJobExecutor, JwtTokenProvider jwtTokenProvider,
+                                JobLeaseService jobLeaseService, @Value("${jobs.max-attempts:3}") int maxAttempts) {
+        this.backgroundJobRepository = backgroundJobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.backgroundJobExecutor = backgroundJobExecutor;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.jobLeaseService = jobLeaseService;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public BackgroundJob start(String type, String subjectId, String requestedBy, Consumer<BackgroundJob> work) {
+        BackgroundJob job = backgroundJobRepository.save(new BackgroundJob(type, subjectId, requestedBy));
+        submit(job, work);
+        return job;
+    }
+
+    // at most one job per subject, whatever its status: the id of a new job is derived from type and subject,
+    // so starts on several nodes at once (or a start and a resume scan) end up with the same job
+    // only an unfinished job is submitted, a failed one is left to the resume scans
+    public BackgroundJob startOnce(String type, String subjectId, String requestedBy, Consumer<BackgroundJob> work) {
+        BackgroundJob job = backgroundJobRepository.findFirstByTypeAndSubjectId(type, subjectId).orElseGet(() -> {
+            BackgroundJob newJob = new BackgroundJob(type, subjectId, requestedBy);
+            newJob.setId(type + ":" + subjectId);
+            try {
+                return mongoTemplate.insert(newJob);
+            } catch (DuplicateKeyException e) {
+                return backgroundJobRepository.findById(newJob.getId()).orElseThrow();
+            }
+        });
+        if (job.getStatus() == BackgroundJob.Status.PENDING || job.getStatus() == BackgroundJob.Status.RUNNING) {
+            submit(job, work);
+        }
+        return job;
+    }
+
+    // pending and running jobs of the type, e.g. interrupted by a restart
+    public List<BackgroundJob> getUnfinishedJobs(String type) {
+        return backgroundJobRepository.findAllByTypeAndStatusIn(type, List.of(BackgroundJob.Status.PENDING, BackgroundJob.Status.RUNNING));
+    }
+
+    // unfinished jobs and failed ones that may be tried again
+    public List<BackgroundJob> getJobsToResume(String type) {
+        return mongoTemplate.find(new Query(Criteria.where("type").is(type).andOperator(runnable())), BackgroundJob.class);
+    }
+
+    public BackgroundJob getLastJob(String type) {
+        return backgroundJobRepository.findFirstByTypeOrderByCreatedAtDesc(type).orElse(null);
+    }
+
+    // the work has to be idempotent, a resumed job runs it again from the start
+    // if another node (or this one) holds the lease of the job, it is running there and the state is left alone
+    public void submit(BackgroundJob job, Consumer<BackgroundJob> work) {
+        backgroundJobExecutor.execute(() -> {
+            if (!jobLeaseService.runExclusively("job:" + job.getId(), "job:" + job.getType(), lease -> run(job, work))) {
+                log.debug("Job {} ({} of {}) is already running, not started again.", job.getId(), job.getType(), job.getSubjectId());
+            }
+        });
+    }
+
+    private void run(BackgroundJob job, Consumer<BackgroundJob> work) {
+        BackgroundJob claimed = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(job.getId()).andOperator(runnable())),
+                new Update()
+                        .set("status", BackgroundJob.Status.RUNNING)
+                        .inc("attempts", 1)
+                        .unset("error")
+                        .unset("finishedAt")
+                        .set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                BackgroundJob.class);
+        if (claimed == null) {
+            log.debug("Job {} ({} of {}) is finished, not run again.", job.getId(), job.getType(), job.getSubjectId());
+            return;
+        }
+        try {
+            log.debug("Job {} ({} of {}) started, attempt {}.", job.getId(), job.getType(), job.getSubjectId(), claimed.getAttempts());
+            work.accept(claimed);
+            update(job.getId(), new Update()
+                    .set("status", BackgroundJob.Status.COMPLETED)
+                    .set("finishedAt", Instant.now()));
+            log.info("Job {} ({} of {}) completed.", job.getId(), job.getType(), job.getSubjectId());
+        } catch (Exception e) {
+            log.error("Job {} ({} of {}) failed.", job.getId(), job.getType(), job.getSubjectId(), e);
+            update(job.getId(), new Update()
+                    .set("status", BackgroundJob.Status.FAILED)
+                    .set("error", e.getMessage())
+                    .set("finishedAt", Instant.now()));
+        }
+    }
+
+    public void setStep(String jobId, String step) {
+        update(jobId, new Update().set("step", step));
+    }
+
+    public void addProgress(String jobId, String counter, long processed) {
+        if (processed > 0) {
+            update(jobId, new Update().inc("progress." + counter, processed));
+        }
+    }
+
+    public BackgroundJob getJob(String header, String jobId) {
+        BackgroundJob job = backgroundJobRepository.findById(jobId)
+                .orElseThrow(() -> new NoSuchElementException("Job not found"));
+        String token = header.replace("Bearer ", "");
+        String userId = jwtTokenProvider.getUserIdFromToken(token);
+        if (!userId.equals(job.getRequestedBy()) && !jwtTokenProvider.isAdmin(token)) {
+            throw new AccessDeniedException("You are not allowed to see this job");
+        }
+        return job;
+    }
+
+    private Criteria runnable() {
+        return new Criteria().orOperator(
+                Criteria.where("status").in(BackgroundJob.Status.PENDING, BackgroundJob.Status.RUNNING),
+                Criteria.where("status").is(BackgroundJob.Status.FAILED).and("attempts").lt(maxAttempts));
+    }
+
+    private void update(String jobId, Update update) {
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(jobId)),
+                update.set("updatedAt", Instant.now()),
+                BackgroundJob.class);
+    }
+}
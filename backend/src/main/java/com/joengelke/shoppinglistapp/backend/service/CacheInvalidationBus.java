@@ -0,0 +1,229 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// tells the in-process caches of every node which documents changed, using one change stream on the database
+// subscribers evict or reload exactly the changed ids, changes written by this node arrive here as well
+// if the stream breaks it is resumed from the last resume token, if that is not possible every cache is dropped,
+// and while there is no stream at all the caches are dropped every fallback interval, so they are stale for at most that long
+// change streams need a replica set, on a standalone server keep cache.invalidation.enabled=false and run a single node
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    public static final List<String> COLLECTIONS = List.of("user", "shoppingList", "shoppingItem", "recipe");
+
+    // resume token no longer in the oplog
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration retryInterval;
+    private final Duration fallbackInterval;
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread thread;
+    private BsonDocument resumeToken;
+    private long lastFallbackEviction;
+
+    public CacheInvalidationBus(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                                @Value("${cache.invalidation.enabled:false}") boolean enabled,
+                                @Value("${cache.invalidation.retry-interval-seconds:5}") long retryIntervalSeconds,
+                                @Value("${cache.invalidation.fallback-interval-seconds:60}") long fallbackIntervalSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.retryInterval = Duration.ofSeconds(retryIntervalSeconds);
+        this.fallbackInterval = Duration.ofSeconds(fallbackIntervalSeconds);
+    }
+
+    // evict gets the id of a changed document, evictAll is called when the changes in between are unknown
+    public void subscribe(String collection, Consumer<String> evict, Runnable evictAll) {
+        if (!COLLECTIONS.contains(collection)) {
+            throw new IllegalArgumentException("No change stream for collection " + collection);
+        }
+        subscribers.computeIfAbsent(collection, k -> new CopyOnWriteArrayList<>()).add(new Subscriber(evict, evictAll));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // the caches are built on the same event, the stream starts at the current time
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        lastFallbackEviction = System.nanoTime();
+        thread = Thread.ofPlatform().daemon().name("cache-invalidation").start(this::run);
+        log.info("Cache invalidation listening to changes of {}.", COLLECTIONS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> open = cursor;
+        if (open != null) {
+            open.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        boolean connected = true;
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> open = watch().cursor()) {
+                cursor = open;
+                if (!connected) {
+                    log.info("Cache invalidation stream {}.", resumeToken != null ? "resumed" : "reopened");
+                    if (resumeToken == null) {
+                        evictAll(); // the changes while it was down are unknown
+                    }
+                    connected = true;
+                }
+                while (running) {
+                    ChangeStreamDocument<Document> change = open.tryNext();
+                    // the token of the last change, or the post batch resume token when there was none,
+                    // that one moves on with the oplog, so a resume after a quiet period does not start from an old position
+                    BsonDocument token = open.getResumeToken();
+                    if (token != null) {
+                        resumeToken = token;
+                    }
+                    if (change == null) {
+                        continue;
+                    }
+                    if (change.getOperationType() == OperationType.INVALIDATE) {
+                        // the stream ends after an invalidate and can not be resumed
+                        resumeToken = null;
+                        evictAll();
+                        break;
+                    }
+                    dispatch(change);
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    return;
+                }
+                if (connected) {
+                    log.warn("Cache invalidation stream lost, caches are dropped every {} s until it is back: {}",
+                            fallbackInterval.toSeconds(), e.getMessage());
+                    connected = false;
+                }
+                if (e instanceof MongoCommandException commandException
+                        && commandException.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    resumeToken = null;
+                }
+                if (System.nanoTime() - lastFallbackEviction >= fallbackInterval.toNanos()) {
+                    evictAll();
+                }
+                sleep(retryInterval);
+            } finally {
+                cursor = null;
+            }
+        }
+    }
+
+    private ChangeStreamIterable<Document> watch() {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                .watch(List.of(Aggregates.match(Filters.in("ns.coll", COLLECTIONS))))
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        return resumeToken != null ? stream.resumeAfter(resumeToken) : stream;
+    }
+
+    private void dispatch(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+        List<Subscriber> collectionSubscribers = collection != null ? subscribers.get(collection) : null;
+        if (collectionSubscribers == null) {
+            return;
+        }
+        counter(collection).increment();
+        BsonDocument documentKey = change.getDocumentKey();
+        String id = documentKey != null ? idOf(documentKey.get("_id")) : null;
+        for (Subscriber subscriber : collectionSubscribers) {
+            try {
+                if (id == null) {
+                    subscriber.evictAll().run(); // drop, rename and other changes of the whole collection
+                } else {
+                    subscriber.evict().accept(id);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation of {} {} failed: {}", collection, id, e.getMessage());
+            }
+        }
+    }
+
+    private void evictAll() {
+        lastFallbackEviction = System.nanoTime();
+        subscribers.forEach((collection, collectionSubscribers) -> {
+            for (Subscriber subscriber : collectionSubscribers) {
+                try {
+                    subscriber.evictAll().run();
+                } catch (RuntimeException e) {
+                    log.warn("Dropping the {} cache failed: {}", collection, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Counter counter(String collection) {
+        return Counter.builder("cache.invalidations")
+                .tag("collection", collection)
+                .register(meterRegistry);
+    }
+
+    private static String idOf(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Subscriber(Consumer<String> evict, Runnable evictAll) {
+    }
+}
@@ -0,0 +1,367 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.*;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// fills an empty database with a synthetic household server for load tests, backups and benchmarks
+// the same seed and reference date always produce the same documents, including their ids
+// sizes are skewed like real data: most lists are small, a few are huge, most items are checked history,
+// a few public recipes are saved by many users
+@Slf4j
+@Service
+public class DatasetGenerator {
+
+    private static final String[] ITEM_NAMES = {
+            "Milch", "Brot", "Butter", "Eier", "Käse", "Tomaten", "Gurke", "Nudeln", "Reis", "Äpfel",
+            "Bananen", "Kartoffeln", "Zwiebeln", "Knoblauch", "Joghurt", "Mehl", "Zucker", "Kaffee", "Tee", "Salz",
+            "Pfeffer", "Paprika", "Karotten", "Brokkoli", "Zucchini", "Spinat", "Salat", "Champignons", "Lauch", "Sellerie",
+            "Hähnchenbrust", "Hackfleisch", "Lachs", "Thunfisch", "Schinken", "Salami", "Tofu", "Linsen", "Kichererbsen", "Bohnen",
+            "Sahne", "Quark", "Mozzarella", "Parmesan", "Frischkäse", "Haferflocken", "Müsli", "Honig", "Marmelade", "Nutella",
+            "Olivenöl", "Essig", "Senf", "Ketchup", "Mayonnaise", "Tomatenmark", "Passierte Tomaten", "Brühe", "Oregano", "Basilikum",
+            "Zitronen", "Orangen", "Trauben", "Erdbeeren", "Heidelbeeren", "Avocado", "Ingwer", "Chili", "Petersilie", "Schnittlauch",
+            "Wasser", "Apfelsaft", "Orangensaft", "Bier", "Wein", "Toilettenpapier", "Spülmittel", "Waschmittel", "Zahnpasta", "Shampoo"
+    };
+    private static final String[] UNITS = {"", "", "", "g", "kg", "l", "ml", "Stk", "Pck"};
+    private static final String[] TAGS = {"Bio", "Angebot", "Vorrat", "Drogerie", "Getränke", "Tiefkühl"};
+    private static final String[] CATEGORIES = {
+            "Vegetarisch", "Vegan", "Schnell", "Dessert", "Frühstück", "Pasta", "Suppe", "Salat", "Backen", "Grillen",
+            "Fisch", "Fleisch", "Asiatisch", "Italienisch", "Low Carb"
+    };
+    private static final String[] LIST_NAMES = {"Einkauf", "Wocheneinkauf", "Drogerie", "Getränke", "Party", "Urlaub", "Baumarkt", "WG"};
+    private static final String[] FILE_TYPES = {"image/jpeg", "image/png", "application/pdf"};
+
+    // ObjectIds are built from this timestamp and a running counter instead of the random process part,
+    // so they are the same in every run
+    private static final int ID_EPOCH_SECONDS = 1_700_000_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Value("${generate.seed:42}")
+    private long seed;
+    @Value("${generate.reference-date:}")
+    private String referenceDate;
+    @Value("${generate.users:1000}")
+    private int userCount;
+    @Value("${generate.lists-per-user:2}")
+    private double listsPerUser;
+    @Value("${generate.shared-list-ratio:0.3}")
+    private double sharedListRatio;
+    @Value("${generate.items-per-list:40}")
+    private int medianItemsPerList;
+    @Value("${generate.max-items-per-list:5000}")
+    private int maxItemsPerList;
+    @Value("${generate.checked-ratio:0.85}")
+    private double checkedRatio;
+    @Value("${generate.item-sets-per-list:1}")
+    private double itemSetsPerList;
+    @Value("${generate.activity-per-item:4}")
+    private double activityPerItem;
+    @Value("${generate.history-days:365}")
+    private int historyDays;
+    @Value("${generate.recipes:20000}")
+    private int recipeCount;
+    @Value("${generate.public-recipe-ratio:0.15}")
+    private double publicRecipeRatio;
+    @Value("${generate.saved-recipes-per-user:5}")
+    private double savedRecipesPerUser;
+    @Value("${generate.recipe-file-ratio:0.05}")
+    private double recipeFileRatio;
+    @Value("${generate.batch-size:1000}")
+    private int batchSize;
+
+    private Random random;
+    private long nextId;
+    private Instant now;
+    private Map<Class<?>, List<Object>> buffers;
+    private Map<String, Long> written;
+
+    public DatasetGenerator(MongoTemplate mongoTemplate, PasswordEncoder passwordEncoder) {
+        this.mongoTemplate = mongoTemplate;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public Map<String, Long> generate() {
+        // a lock instead of synchronized, a virtual thread doing I/O in a synchronized block pins its carrier
+        lock.lock();
+        try {
+            return generateLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Long> generateLocked() {
+        if (mongoTemplate.getCollection(mongoTemplate.getCollectionName(ShoppingList.class)).estimatedDocumentCount() > 0
+                || mongoTemplate.getCollection(mongoTemplate.getCollectionName(Recipe.class)).estimatedDocumentCount() > 0) {
+            throw new IllegalStateException("generateDB needs an empty database, start it together with clearDB=true");
+        }
+
+        random = new Random(seed);
+        nextId = 0;
+        now = referenceDate.isBlank()
+                ? LocalDate.now(ZoneOffset.UTC).atStartOfDay().toInstant(ZoneOffset.UTC)
+                : LocalDate.parse(referenceDate).atStartOfDay().toInstant(ZoneOffset.UTC);
+        buffers = new LinkedHashMap<>();
+        written = new LinkedHashMap<>();
+        long started = System.nanoTime();
+        log.info("Generating dataset with seed {} for {} users and {} recipes ...", seed, userCount, recipeCount);
+
+        List<User> users = createUsers();
+        generateShoppingLists(users);
+        List<String> publicRecipeIds = generateRecipes(users);
+        saveRecipes(users, publicRecipeIds);
+        for (User user : users) {
+            add(user);
+        }
+        flushAll();
+
+        log.info("Dataset generated in {} s: {}", Duration.ofNanos(System.nanoTime() - started).toSeconds(), written);
+        return written;
+    }
+
+    // users are written last, after their recipe ids are known
+    private List<User> createUsers() {
+        // hashing is slow on purpose, every generated user gets the same password "password"
+        String password = passwordEncoder.encode("password");
+        List<User> users = new ArrayList<>(userCount);
+        for (int u = 0; u < userCount; u++) {
+            User user = new User(String.format("user%06d", u), password);
+            user.setId(id());
+            user.setEmail(user.getUsername() + "@example.com");
+            users.add(user);
+        }
+        return users;
+    }
+
+    private void generateShoppingLists(List<User> users) {
+        for (int u = 0; u < users.size(); u++) {
+            int lists = 1 + geometric(listsPerUser - 1);
+            for (int l = 0; l < lists; l++) {
+                ShoppingList list = new ShoppingList(id(), LIST_NAMES[zipf(LIST_NAMES.length)] + (l > 0 ? " " + (l + 1) : ""));
+                list.setCreatedAt(pastInstant());
+                list.getUserIds().add(users.get(u).getId());
+                // shared lists belong to a household of neighbouring users
+                if (random.nextDouble() < sharedListRatio) {
+                    int members = 1 + random.nextInt(3);
+                    for (int m = 1; m <= members && m < users.size(); m++) {
+                        list.getUserIds().add(users.get((u + m) % users.size()).getId());
+                    }
+                }
+                generateItems(list);
+                generateItemSets(list);
+                add(list);
+            }
+        }
+    }
+
+    // log-normal list sizes: the median list is small, a few lists collect years of history
+    private void generateItems(ShoppingList list) {
+        int items = (int) Math.round(medianItemsPerList * Math.exp(random.nextGaussian()));
+        items = Math.max(1, Math.min(maxItemsPerList, items));
+        for (int i = 0; i < items; i++) {
+            String name = ITEM_NAMES[zipf(ITEM_NAMES.length)];
+            String editedBy = list.getUserIds().get(random.nextInt(list.getUserIds().size()));
+            ShoppingItem item = new ShoppingItem(name, tags(), (double) random.nextInt(4), UNITS[random.nextInt(UNITS.length)],
+                    random.nextInt(10) == 0 ? "Notiz " + i : "", editedBy);
+            item.setId(id());
+            item.setListId(list.getId());
+            item.setChecked(random.nextDouble() < checkedRatio);
+            item.setCheckedAt(item.isChecked() ? pastInstant() : list.getCreatedAt());
+            item.setEditedAt(item.getCheckedAt());
+            list.getItemIds().add(item.getId());
+            add(item);
+            if (item.isChecked()) {
+                generateActivity(list, item);
+            }
+        }
+    }
+
+    // every checked item was bought a few times before, the last purchase matches its checkedAt
+    private void generateActivity(ShoppingList list, ShoppingItem item) {
+        int purchases = 1 + geometric(activityPerItem - 1);
+        for (int p = 0; p < purchases; p++) {
+            Instant timestamp = p == 0 ? item.getCheckedAt() : pastInstant();
+            String userId = list.getUserIds().get(random.nextInt(list.getUserIds().size()));
+            ShoppingItemActivity activity = new ShoppingItemActivity(list.getId(), userId, item.getId(), item.getName(),
+                    item.getAmount() == 0 ? 1 : item.getAmount(), item.getUnit(), timestamp, "ITEM_CHECKED");
+            activity.setId(id());
+            add(activity);
+        }
+    }
+
+    private void generateItemSets(ShoppingList list) {
+        int itemSets = geometric(itemSetsPerList);
+        for (int s = 0; s < itemSets; s++) {
+            ItemSet itemSet = new ItemSet("Vorlage " + (s + 1), ingredients(3 + random.nextInt(8)));
+            itemSet.setId(id());
+            list.getItemSetIds().add(itemSet.getId());
+            add(itemSet);
+        }
+    }
+
+    // creators are zipf distributed, so a few users write most of the recipes
+    private List<String> generateRecipes(List<User> users) {
+        GridFSBucket bucket = GridFSBuckets.create(mongoTemplate.getDb());
+        List<String> publicRecipeIds = new ArrayList<>();
+        for (int r = 0; r < recipeCount; r++) {
+            User creator = users.get(zipf(users.size()));
+            String name = "Rezept " + r;
+            List<String> categories = new ArrayList<>();
+            for (int c = 0; c < 1 + random.nextInt(3); c++) {
+                String category = CATEGORIES[zipf(CATEGORIES.length)];
+                if (!categories.contains(category)) {
+                    categories.add(category);
+                }
+            }
+            List<String> instructions = new ArrayList<>();
+            for (int i = 0; i < 3 + random.nextInt(6); i++) {
+                instructions.add("Schritt " + (i + 1) + ": " + ITEM_NAMES[zipf(ITEM_NAMES.length)] + " vorbereiten");
+            }
+
+            double roll = random.nextDouble();
+            Visibility visibility = roll < publicRecipeRatio ? Visibility.PUBLIC
+                    : roll < publicRecipeRatio + 0.1 ? Visibility.SHARED
+                    : Visibility.PRIVATE;
+            List<String> sharedWith = new ArrayList<>();
+            if (visibility == Visibility.SHARED) {
+                for (int s = 0; s < 1 + random.nextInt(5); s++) {
+                    sharedWith.add(users.get(random.nextInt(users.size())).getId());
+                }
+            }
+
+            Recipe recipe = new Recipe(name, creator.getId(), creator.getUsername(),
+                    new ItemSet(name, ingredients(3 + random.nextInt(10))),
+                    "Beschreibung von " + name, instructions, categories, visibility, sharedWith, new ArrayList<>());
+            recipe.setId(id());
+            recipe.setCreatedAt(pastInstant());
+            if (random.nextDouble() < recipeFileRatio) {
+                recipe.getRecipeFileIds().add(storeFile(bucket, name));
+            }
+            creator.getRecipeIds().add(recipe.getId());
+            if (visibility == Visibility.PUBLIC) {
+                publicRecipeIds.add(recipe.getId());
+            }
+            add(recipe);
+        }
+        return publicRecipeIds;
+    }
+
+    // the first public recipes are the popular ones, they end up in the collection of many users
+    private void saveRecipes(List<User> users, List<String> publicRecipeIds) {
+        if (publicRecipeIds.isEmpty()) {
+            return;
+        }
+        for (User user : users) {
+            int saved = geometric(savedRecipesPerUser);
+            for (int s = 0; s < saved; s++) {
+                String recipeId = publicRecipeIds.get(zipf(publicRecipeIds.size()));
+                if (!user.getRecipeIds().contains(recipeId)) {
+                    user.getRecipeIds().add(recipeId);
+                }
+            }
+        }
+    }
+
+    // stored with the metadata GridFsTemplate writes, so the files are served like uploaded ones
+    private String storeFile(GridFSBucket bucket, String recipeName) {
+        int type = random.nextInt(FILE_TYPES.length);
+        byte[] content = new byte[4096 + random.nextInt(60 * 1024)];
+        random.nextBytes(content);
+        String fileId = id();
+        String extension = FILE_TYPES[type].substring(FILE_TYPES[type].indexOf('/') + 1);
+        bucket.uploadFromStream(new BsonObjectId(new ObjectId(fileId)), recipeName + "." + extension,
+                new ByteArrayInputStream(content),
+                new GridFSUploadOptions().metadata(new Document("_contentType", FILE_TYPES[type])));
+        written.merge("files", 1L, Long::sum);
+        return fileId;
+    }
+
+    private List<ItemSetItem> ingredients(int count) {
+        List<ItemSetItem> ingredients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ingredients.add(new ItemSetItem("", "", ITEM_NAMES[zipf(ITEM_NAMES.length)],
+                    (double) (1 + random.nextInt(5)), UNITS[random.nextInt(UNITS.length)]));
+        }
+        return ingredients;
+    }
+
+    private List<String> tags() {
+        List<String> tags = new ArrayList<>();
+        if (random.nextInt(5) == 0) {
+            tags.add(TAGS[zipf(TAGS.length)]);
+        }
+        return tags;
+    }
+
+    private String id() {
+        return new ObjectId(ByteBuffer.allocate(12).putInt(ID_EPOCH_SECONDS).putLong(nextId++).array()).toHexString();
+    }
+
+    // skewed towards the recent past
+    private Instant pastInstant() {
+        double age = Math.pow(random.nextDouble(), 2) * historyDays * 86_400L;
+        return now.minusSeconds((long) age);
+    }
+
+    // number of events with the given mean, 0 is the most likely value
+    private int geometric(double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double p = 1 / (mean + 1);
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    // index in [0, n), rank k is picked with a probability proportional to 1/(k+1)
+    private int zipf(int n) {
+        double harmonic = Math.log(n) + 0.5772;
+        double target = random.nextDouble() * harmonic;
+        int k = (int) Math.exp(target) - 1; // inverse of the harmonic sum, close enough for test data
+        return Math.max(0, Math.min(n - 1, k));
+    }
+
+    private void add(Object document) {
+        List<Object> buffer = buffers.computeIfAbsent(document.getClass(), k -> new ArrayList<>(batchSize));
+        buffer.add(document);
+        if (buffer.size() >= batchSize) {
+            flush(document.getClass(), buffer);
+        }
+    }
+
+    private void flushAll() {
+        buffers.forEach(this::flush);
+    }
+
+    private void flush(Class<?> type, List<Object> buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        mongoTemplate.insert(buffer, type);
+        long total = written.merge(type.getSimpleName(), (long) buffer.size(), Long::sum);
+        if (total % (100L * batchSize) < buffer.size()) {
+            log.info("{} {} documents written.", total, type.getSimpleName());
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,219 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItemActivity;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+
+// sorted in-memory prefix index of item names per shopping list and per user
+// ranked by how often and how recently an item was bought, fed by the item activity events
+// events of other nodes arrive as shoppingItem changes through the CacheInvalidationBus,
+// then the list and user scope of the latest activity of the item are loaded again
+@Slf4j
+@Component
+public class ItemNameSuggestionIndex {
+
+    private final MongoTemplate mongoTemplate;
+    private final double halfLifeMillis;
+
+    // scope ("list:<id>" or "user:<id>") -> normalized name -> suggestion
+    private final Map<String, ConcurrentSkipListMap<String, Suggestion>> scopes = new ConcurrentHashMap<>();
+
+    public ItemNameSuggestionIndex(MongoTemplate mongoTemplate, CacheInvalidationBus cacheInvalidationBus,
+                                   @Value("${suggestions.recency-half-life-days:30}") long recencyHalfLifeDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.halfLifeMillis = Duration.ofDays(recencyHalfLifeDays).toMillis();
+        cacheInvalidationBus.subscribe("shoppingItem", this::reloadScopesOfItem, this::rebuild);
+    }
+
+    // runs after the CommandLineRunners, so a restored backup is already in the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        scopes.clear();
+        int listEntries = load(null, "listId", listId -> scope(listScope(listId)));
+        int userEntries = load(null, "userId", userId -> scope(userScope(userId)));
+        log.info("Item name suggestion index built with {} list and {} user entries.", listEntries, userEntries);
+    }
+
+    public void record(String shoppingListId, String userId, String name, Instant timestamp) {
+        String key = normalize(name);
+        if (key.isEmpty()) {
+            return;
+        }
+        Suggestion suggestion = new Suggestion(name.trim(), 1, timestamp.toEpochMilli());
+        if (shoppingListId != null) {
+            scope(listScope(shoppingListId)).merge(key, suggestion, Suggestion::combine);
+        }
+        if (userId != null) {
+            scope(userScope(userId)).merge(key, suggestion, Suggestion::combine);
+        }
+    }
+
+    public void removeList(String shoppingListId) {
+        scopes.remove(listScope(shoppingListId));
+    }
+
+    public void removeUser(String userId) {
+        scopes.remove(userScope(userId));
+    }
+
+    private void reloadScopesOfItem(String itemId) {
+        Query latest = new Query(Criteria.where("itemId").is(itemId))
+                .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+                .limit(1);
+        latest.fields().include("listId", "userId");
+        ShoppingItemActivity activity = mongoTemplate.findOne(latest, ShoppingItemActivity.class);
+        if (activity == null) {
+            return; // an item change without a purchase, e.g. a new item
+        }
+        if (activity.getListId() != null) {
+            reloadScope("listId", activity.getListId(), listScope(activity.getListId()));
+        }
+        if (activity.getUserId() != null) {
+            reloadScope("userId", activity.getUserId(), userScope(activity.getUserId()));
+        }
+    }
+
+    // replaces the scope as a whole, so readers never see it half loaded
+    private void reloadScope(String scopeField, String scopeId, String scope) {
+        ConcurrentSkipListMap<String, Suggestion> names = new ConcurrentSkipListMap<>();
+        load(Criteria.where(scopeField).is(scopeId), scopeField, id -> names);
+        if (names.isEmpty()) {
+            scopes.remove(scope);
+        } else {
+            scopes.put(scope, names);
+        }
+    }
+
+    public int size() {
+        return scopes.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public List<String> suggestForList(String shoppingListId, String prefix, int limit) {
+        return suggest(listScope(shoppingListId), prefix, limit);
+    }
+
+    public List<String> suggestForUser(String userId, String prefix, int limit) {
+        return suggest(userScope(userId), prefix, limit);
+    }
+
+    private List<String> suggest(String scope, String prefix, int limit) {
+        ConcurrentSkipListMap<String, Suggestion> names = scopes.get(scope);
+        if (names == null || limit <= 0) {
+            return List.of();
+        }
+        String from = normalize(prefix);
+        ConcurrentNavigableMap<String, Suggestion> candidates = from.isEmpty()
+                ? names
+                : names.subMap(from, true, from + Character.MAX_VALUE, false);
+
+        long now = System.currentTimeMillis();
+        Comparator<Suggestion> byScore = Comparator.comparingDouble(suggestion -> suggestion.score(now, halfLifeMillis));
+
+        // keep only the best suggestions, the head of the queue is the worst of them
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, byScore);
+        for (Suggestion suggestion : candidates.values()) {
+            best.add(suggestion);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Suggestion> ranked = new ArrayList<>(best);
+        ranked.sort(byScore.reversed());
+        return ranked.stream().map(Suggestion::name).toList();
+    }
+
+    // match is null for all activities
+    private int load(Criteria match, String scopeField, Function<String, ConcurrentSkipListMap<String, Suggestion>> scopeOf) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (match != null) {
+            stages.add(Aggregation.match(match));
+        }
+        stages.add(group(scopeField, "name").count().as("count").max("timestamp").as("lastUsed"));
+        Aggregation aggregation = newAggregation(stages)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        int entries = 0;
+        try (Stream<Document> groups = mongoTemplate.aggregateStream(aggregation, ShoppingItemActivity.class, Document.class)) {
+            Iterator<Document> iterator = groups.iterator();
+            while (iterator.hasNext()) {
+                Document group = iterator.next();
+                Document id = group.get("_id", Document.class);
+                String scopeId = id.getString(scopeField);
+                String name = id.getString("name");
+                String key = normalize(name);
+                if (scopeId == null || key.isEmpty()) {
+                    continue;
+                }
+                Date lastUsed = group.getDate("lastUsed");
+                Suggestion suggestion = new Suggestion(
+                        name.trim(),
+                        group.getInteger("count"),
+                        lastUsed != null ? lastUsed.getTime() : 0L);
+                scopeOf.apply(scopeId).merge(key, suggestion, Suggestion::combine);
+                entries++;
+            }
+        }
+        return entries;
+    }
+
+    private ConcurrentSkipListMap<String, Suggestion> scope(String scope) {
+        return scopes.computeIfAbsent(scope, k -> new ConcurrentSkipListMap<>());
+    }
+
+    private static String listScope(String shoppingListId) {
+        return "list:" + shoppingListId;
+    }
+
+    private static String userScope(String userId) {
+        return "user:" + userId;
+    }
+
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Suggestion(String name, int count, long lastUsedMillis) {
+
+        // the most recent spelling wins
+        static Suggestion combine(Suggestion existing, Suggestion added) {
+            Suggestion newer = added.lastUsedMillis >= existing.lastUsedMillis ? added : existing;
+            return new Suggestion(
+                    newer.name,
+                    existing.count + added.count,
+                    Math.max(existing.lastUsedMillis, added.lastUsedMillis));
+        }
+
+        // purchase count, halved for every half-life since the last purchase
+        double score(long now, double halfLifeMillis) {
+            double age = Math.max(0, now - lastUsedMillis);
+            return count * Math.pow(0.5, age / halfLifeMillis);
+        }
+    }
+}
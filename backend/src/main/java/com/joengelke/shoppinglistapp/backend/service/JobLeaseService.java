@@ -0,0 +1,212 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.JobLease;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// makes sure a scheduled job runs on one node at a time when several instances share the database
+// the lease is a document per job that a node takes over once it has expired, and renews while the job runs
+// if a node stalls longer than the ttl another node may take over, so side effects outside mongo check isCurrent first
+// a finished job keeps the lease for the minimum hold, so a node whose cron fires a bit later (clock skew) does not run it again
+// the minimum hold has to be shorter than the interval of the most frequent scheduled job
+// lease documents are removed by a ttl index a day after they expired, see MongoIndexInitializer
+@Slf4j
+@Service
+public class JobLeaseService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration minimumHold;
+    @Getter
+    private final String nodeId;
+
+    private final ScheduledExecutorService renewals = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("job-lease-renewal").factory());
+    // meter name -> number of leases of it this node holds
+    private final Map<String, AtomicInteger> owned = new ConcurrentHashMap<>();
+
+    public JobLeaseService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                           @Value("${jobs.lease.ttl-seconds:60}") long ttlSeconds,
+                           @Value("${jobs.lease.minimum-hold-seconds:600}") long minimumHoldSeconds,
+                           @Value("${jobs.node-id:}") String nodeId) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.minimumHold = Duration.ofSeconds(minimumHoldSeconds);
+        this.nodeId = nodeId.isBlank() ? hostName() + "-" + UUID.randomUUID().toString().substring(0, 8) : nodeId;
+    }
+
+    // runs the work if no other node holds the lease of the job, returns false if it was skipped
+    public boolean runExclusively(String job, Consumer<Lease> work) {
+        return runExclusively(job, job, work);
+    }
+
+    // the metrics are tagged with the meter name, leases named per run (like the ones of the background jobs)
+    // pass the name of their kind, so the number of meters does not grow with every run
+    public boolean runExclusively(String job, String meterName, Consumer<Lease> work) {
+        return run(job, meterName, false, work);
+    }
+
+    // also takes over the lease while this node only keeps it for the minimum hold after its own run,
+    // e.g. for a last run on shutdown shortly after the scheduled one, skipped if the job is running on this node
+    public boolean runExclusivelyIgnoringOwnHold(String job, Consumer<Lease> work) {
+        if (ownedGauge(job).get() > 0) {
+            log.debug("Job {} is running on this node, skipped.", job);
+            return false;
+        }
+        return run(job, job, true, work);
+    }
+
+    private boolean run(String job, String meterName, boolean ignoreOwnHold, Consumer<Lease> work) {
+        Instant holdUntil = Instant.now().plus(minimumHold);
+        Optional<Lease> acquired = acquire(job, ignoreOwnHold);
+        if (acquired.isEmpty()) {
+            count(meterName, "skipped");
+            log.debug("Job {} is running on another node, skipped.", job);
+            return false;
+        }
+        Lease lease = acquired.get();
+        count(meterName, "acquired");
+        AtomicInteger ownedLeases = ownedGauge(meterName);
+        ownedLeases.incrementAndGet();
+        AtomicBoolean held = new AtomicBoolean(true); // until released or lost, so the gauge is decremented once
+        long period = Math.max(1, ttl.toMillis() / 3);
+        ScheduledFuture<?> renewal = renewals.scheduleAtFixedRate(() -> renew(lease, meterName, held), period, period, TimeUnit.MILLISECONDS);
+        try {
+            work.accept(lease);
+            return true;
+        } finally {
+            renewal.cancel(false);
+            if (held.getAndSet(false)) {
+                ownedLeases.decrementAndGet();
+            }
+            release(lease, holdUntil);
+        }
+    }
+
+    // takes the lease if it is free or expired, the token of the new lease is one higher than the one before
+    public Optional<Lease> acquire(String job) {
+        return acquire(job, false);
+    }
+
+    private Optional<Lease> acquire(String job, boolean ignoreOwnHold) {
+        Instant now = Instant.now();
+        Criteria takeable = ignoreOwnHold
+                ? new Criteria().orOperator(Criteria.where("expiresAt").lt(now), Criteria.where("owner").is(nodeId))
+                : Criteria.where("expiresAt").lt(now);
+        Query query = new Query(Criteria.where("_id").is(job).andOperator(takeable));
+        Update update = new Update()
+                .set("owner", nodeId)
+                .set("acquiredAt", now)
+                .set("expiresAt", now.plus(ttl))
+                .inc("token", 1);
+        try {
+            JobLease lease = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), JobLease.class);
+            return Optional.ofNullable(lease).map(l -> new Lease(job, l.getOwner(), l.getToken()));
+        } catch (DuplicateKeyException e) {
+            return Optional.empty(); // the lease exists and has not expired
+        }
+    }
+
+    // false if the lease expired and was taken over in the meantime
+    public boolean isCurrent(Lease lease) {
+        return mongoTemplate.exists(leaseQuery(lease).addCriteria(Criteria.where("expiresAt").gt(Instant.now())), JobLease.class);
+    }
+
+    private void renew(Lease lease, String meterName, AtomicBoolean held) {
+        long matched;
+        try {
+            matched = mongoTemplate.updateFirst(leaseQuery(lease),
+                    new Update().set("expiresAt", Instant.now().plus(ttl)), JobLease.class).getMatchedCount();
+        } catch (RuntimeException e) {
+            // the next renewal tries again, the lease only lapses after the whole ttl
+            log.warn("Renewing the lease of job {} failed: {}", lease.job(), e.getMessage());
+            return;
+        }
+        if (matched == 0) {
+            count(meterName, "lost");
+            if (held.getAndSet(false)) {
+                ownedGauge(meterName).decrementAndGet();
+            }
+            log.warn("Lease of job {} with token {} was taken over by another node.", lease.job(), lease.token());
+            throw new CancellationException(); // stops the periodic renewal
+        }
+    }
+
+    // lets the next node take over once the minimum hold is over instead of waiting for the expiry
+    private void release(Lease lease, Instant holdUntil) {
+        Instant now = Instant.now();
+        try {
+            mongoTemplate.updateFirst(leaseQuery(lease), new Update().set("expiresAt", now.isAfter(holdUntil) ? now : holdUntil), JobLease.class);
+        } catch (RuntimeException e) {
+            log.warn("Releasing the lease of job {} failed, it expires in {} s: {}", lease.job(), ttl.toSeconds(), e.getMessage());
+        }
+    }
+
+    private static Query leaseQuery(Lease lease) {
+        return new Query(Criteria.where("_id").is(lease.job())
+                .and("owner").is(lease.owner())
+                .and("token").is(lease.token()));
+    }
+
+    private void count(String meterName, String outcome) {
+        Counter.builder("job.lease.acquisitions")
+                .tag("job", meterName)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private AtomicInteger ownedGauge(String meterName) {
+        return owned.computeIfAbsent(meterName, k -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("job.lease.owned", value, AtomicInteger::get)
+                    .tag("job", meterName)
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewals.shutdownNow();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
+    // token is the fencing token: a higher one means a later holder
+    public record Lease(String job, String owner, long token) {
+    }
+}
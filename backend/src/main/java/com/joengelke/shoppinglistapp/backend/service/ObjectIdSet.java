@@ -0,0 +1,109 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+// open addressing hash set of ObjectIds, used to mark referenced documents while sweeping
+// an id takes 13 bytes instead of a String with its char array and a HashMap node
+// ids that are no ObjectId are kept in a regular set
+class ObjectIdSet {
+
+    private int[] timestamps;
+    private long[] rests;
+    private boolean[] used;
+    private int size;
+    private final Set<String> otherIds = new HashSet<>();
+
+    ObjectIdSet() {
+        this(1024);
+    }
+
+    ObjectIdSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    void add(String id) {
+        if (id == null) {
+            return;
+        }
+        if (ObjectId.isValid(id)) {
+            add(new ObjectId(id));
+        } else {
+            otherIds.add(id);
+        }
+    }
+
+    void add(ObjectId id) {
+        ByteBuffer bytes = ByteBuffer.wrap(id.toByteArray());
+        if (insert(bytes.getInt(), bytes.getLong()) && ++size * 2 > used.length) {
+            grow();
+        }
+    }
+
+    // accepts the raw _id of a document, ObjectId or anything else
+    boolean contains(Object id) {
+        if (id instanceof ObjectId objectId) {
+            ByteBuffer bytes = ByteBuffer.wrap(objectId.toByteArray());
+            int timestamp = bytes.getInt();
+            long rest = bytes.getLong();
+            int mask = used.length - 1;
+            for (int slot = hash(timestamp, rest) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (timestamps[slot] == timestamp && rests[slot] == rest) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (id instanceof String stringId && ObjectId.isValid(stringId)) {
+            return contains(new ObjectId(stringId));
+        }
+        return id != null && otherIds.contains(id.toString());
+    }
+
+    int size() {
+        return size + otherIds.size();
+    }
+
+    private boolean insert(int timestamp, long rest) {
+        int mask = used.length - 1;
+        int slot = hash(timestamp, rest) & mask;
+        while (used[slot]) {
+            if (timestamps[slot] == timestamp && rests[slot] == rest) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        timestamps[slot] = timestamp;
+        rests[slot] = rest;
+        return true;
+    }
+
+    private void grow() {
+        int[] oldTimestamps = timestamps;
+        long[] oldRests = rests;
+        boolean[] oldUsed = used;
+        allocate(oldUsed.length * 2);
+        for (int slot = 0; slot < oldUsed.length; slot++) {
+            if (oldUsed[slot]) {
+                insert(oldTimestamps[slot], oldRests[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        timestamps = new int[capacity];
+        rests = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    // ids created in the same second only differ in the low bytes, so mix all of them
+    private static int hash(int timestamp, long rest) {
+        long h = rest * 0x9E3779B97F4A7C15L + timestamp;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,217 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.*;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// mark and sweep for documents nothing points to anymore
+// mark: streams the shopping lists and recipes and collects the referenced item, item set and file ids
+// sweep: streams the ids of items, item sets and GridFS files and reports (and optionally deletes) the unreferenced ones
+// documents younger than the grace period are skipped, they may belong to a request that has not saved its list yet
+@Slf4j
+@Service
+public class OrphanSweepService {
+
+    public static final String JOB_TYPE = "ORPHAN_SWEEP";
+
+    private final MongoTemplate mongoTemplate;
+    private final GridFsTemplate gridFsTemplate;
+    private final BackgroundJobService backgroundJobService;
+    private final JobLeaseService jobLeaseService;
+
+    @Value("${orphans.delete:false}")
+    private boolean deleteOrphans;
+    @Value("${orphans.grace-period-hours:24}")
+    private long gracePeriodHours;
+    @Value("${orphans.batch-size:200}")
+    private int batchSize;
+    @Value("${orphans.batch-pause-ms:200}")
+    private long batchPauseMillis;
+
+    public OrphanSweepService(MongoTemplate mongoTemplate, GridFsTemplate gridFsTemplate, BackgroundJobService backgroundJobService,
+                              JobLeaseService jobLeaseService) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsTemplate = gridFsTemplate;
+        this.backgroundJobService = backgroundJobService;
+        this.jobLeaseService = jobLeaseService;
+    }
+
+    // with several nodes only the lease holder starts the nightly sweep, the others would find it running or finished
+    @Scheduled(cron = "${orphans.sweep-cron:0 30 3 * * *}") // every night
+    public void scheduledSweep() {
+        jobLeaseService.runExclusively(JOB_TYPE, lease -> startSweep(null, deleteOrphans));
+    }
+
+    // a sweep that is already running is returned instead of starting a second one
+    public BackgroundJob startSweep(String requestedBy, boolean delete) {
+        List<BackgroundJob> running = backgroundJobService.getUnfinishedJobs(JOB_TYPE);
+        if (!running.isEmpty()) {
+            return running.get(0);
+        }
+        return backgroundJobService.start(JOB_TYPE, delete ? "delete" : "report", requestedBy, job -> sweep(job.getId(), delete));
+    }
+
+    public BackgroundJob getLastSweep() {
+        return backgroundJobService.getLastJob(JOB_TYPE);
+    }
+
+    // on every node at startup and then periodically, the lease of the job lets only one of them run it
+    // the periodic scan picks up jobs of a node that went down, once their lease expired
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jobs.resume-interval-ms:300000}", initialDelayString = "${jobs.resume-interval-ms:300000}")
+    public void resumeUnfinishedSweeps() {
+        for (BackgroundJob job : backgroundJobService.getJobsToResume(JOB_TYPE)) {
+            backgroundJobService.submit(job, j -> sweep(j.getId(), "delete".equals(j.getSubjectId())));
+        }
+    }
+
+    private void sweep(String jobId, boolean delete) {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(gracePeriodHours));
+
+        backgroundJobService.setStep(jobId, "mark");
+        ObjectIdSet referencedItems = new ObjectIdSet();
+        ObjectIdSet referencedItemSets = new ObjectIdSet();
+        ObjectIdSet referencedFiles = new ObjectIdSet();
+
+        // soft deleted lists still reference their contents until the purge removes them
+        Query listQuery = new Query();
+        listQuery.fields().include("itemIds", "itemSetIds");
+        try (Stream<ShoppingList> lists = mongoTemplate.stream(listQuery, ShoppingList.class)) {
+            lists.forEach(list -> {
+                if (list.getItemIds() != null) {
+                    list.getItemIds().forEach(referencedItems::add);
+                }
+                if (list.getItemSetIds() != null) {
+                    list.getItemSetIds().forEach(referencedItemSets::add);
+                }
+            });
+        }
+        Query recipeQuery = new Query();
+        recipeQuery.fields().include("recipeFileIds", "itemSet.id");
+        try (Stream<Recipe> recipes = mongoTemplate.stream(recipeQuery, Recipe.class)) {
+            recipes.forEach(recipe -> {
+                if (recipe.getRecipeFileIds() != null) {
+                    recipe.getRecipeFileIds().forEach(referencedFiles::add);
+                }
+                if (recipe.getItemSet() != null) {
+                    referencedItemSets.add(recipe.getItemSet().getId());
+                }
+            });
+        }
+
+        backgroundJobService.setStep(jobId, "items");
+        sweepCollection(jobId, ShoppingItem.class, referencedItems, cutoff, delete, "items");
+        backgroundJobService.setStep(jobId, "itemSets");
+        sweepCollection(jobId, ItemSet.class, referencedItemSets, cutoff, delete, "itemSets");
+        backgroundJobService.setStep(jobId, "files");
+        sweepFiles(jobId, referencedFiles, cutoff, delete);
+        backgroundJobService.setStep(jobId, "done");
+    }
+
+    // ids are ObjectIds, so their creation time is known without a createdAt field
+    private void sweepCollection(String jobId, Class<?> entityClass, ObjectIdSet referenced, Instant cutoff, boolean delete, String counterPrefix) {
+        Query query = new Query(Criteria.where("_id").lt(new ObjectId(Date.from(cutoff))));
+        query.fields().include("_id");
+        String collectionName = mongoTemplate.getCollectionName(entityClass);
+
+        List<Object> orphans = new ArrayList<>(batchSize);
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collectionName)) {
+            Iterator<Document> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                Object id = iterator.next().get("_id");
+                if (referenced.contains(id)) {
+                    continue;
+                }
+                orphans.add(id);
+                if (orphans.size() == batchSize) {
+                    flushDocuments(jobId, collectionName, orphans, delete, counterPrefix);
+                }
+            }
+        }
+        flushDocuments(jobId, collectionName, orphans, delete, counterPrefix);
+    }
+
+    private void flushDocuments(String jobId, String collectionName, List<Object> orphans, boolean delete, String counterPrefix) {
+        if (orphans.isEmpty()) {
+            return;
+        }
+        backgroundJobService.addProgress(jobId, counterPrefix + "Orphaned", orphans.size());
+        if (delete) {
+            long deleted = mongoTemplate.remove(new Query(Criteria.where("_id").in(orphans)), collectionName).getDeletedCount();
+            backgroundJobService.addProgress(jobId, counterPrefix + "Deleted", deleted);
+            pause();
+        } else {
+            log.info("Found {} orphaned {} in {}.", orphans.size(), counterPrefix, collectionName);
+            log.debug("Orphaned {} in {}: {}", counterPrefix, collectionName, orphans);
+        }
+        orphans.clear();
+    }
+
+    private void sweepFiles(String jobId, ObjectIdSet referenced, Instant cutoff, boolean delete) {
+        Query query = new Query(Criteria.where("uploadDate").lt(Date.from(cutoff)));
+
+        List<ObjectId> orphans = new ArrayList<>(batchSize);
+        long orphanedBytes = 0;
+        for (GridFSFile file : gridFsTemplate.find(query)) {
+            BsonValue id = file.getId();
+            if (!id.isObjectId() || referenced.contains(id.asObjectId().getValue())) {
+                continue;
+            }
+            orphans.add(id.asObjectId().getValue());
+            orphanedBytes += file.getLength();
+            if (orphans.size() == batchSize) {
+                flushFiles(jobId, orphans, orphanedBytes, delete);
+                orphanedBytes = 0;
+            }
+        }
+        flushFiles(jobId, orphans, orphanedBytes, delete);
+    }
+
+    private void flushFiles(String jobId, List<ObjectId> orphans, long orphanedBytes, boolean delete) {
+        if (orphans.isEmpty()) {
+            return;
+        }
+        backgroundJobService.addProgress(jobId, "filesOrphaned", orphans.size());
+        backgroundJobService.addProgress(jobId, "orphanedBytes", orphanedBytes);
+        if (delete) {
+            gridFsTemplate.delete(new Query(Criteria.where("_id").in(orphans)));
+            backgroundJobService.addProgress(jobId, "filesDeleted", orphans.size());
+            backgroundJobService.addProgress(jobId, "reclaimedBytes", orphanedBytes);
+            pause();
+        } else {
+            log.info("Found {} orphaned GridFS files ({} bytes).", orphans.size(), orphanedBytes);
+            log.debug("Orphaned GridFS files: {}", orphans);
+        }
+        orphans.clear();
+    }
+
+    // keeps the deletes from competing with the requests for the database
+    private void pause() {
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Orphan sweep interrupted", e);
+        }
+    }
+}
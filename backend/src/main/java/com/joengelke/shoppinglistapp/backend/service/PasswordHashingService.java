@@ -0,0 +1,44 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+// runs work that hashes passwords on the passwordHashingExecutor
+// the controllers return the future, so the request thread is free while the hash is computed
+// when the queue is full the request is answered with 503 right away instead of piling up
+@Service
+public class PasswordHashingService {
+
+    private final ThreadPoolTaskExecutor passwordHashingExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public PasswordHashingService(ThreadPoolTaskExecutor passwordHashingExecutor, MeterRegistry meterRegistry) {
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return CompletableFuture.supplyAsync(work, passwordHashingExecutor)
+                    .whenComplete((result, e) -> sample.stop(Timer.builder("password.hashing")
+                            .tag("operation", operation)
+                            .register(meterRegistry)));
+        } catch (RejectedExecutionException e) {
+            Counter.builder("password.hashing.rejected")
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .increment();
+            return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many logins, try again shortly"));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.ItemSet;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// read-only counterparts of the list, item, item set and marketplace reads on the reactive driver
+// results are emitted from the mongo cursor as they arrive, whether the client gets them streamed depends on the response type, see StreamController
+@Service
+public class ReactiveReadService {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    public ReactiveReadService(ReactiveMongoTemplate reactiveMongoTemplate, JwtTokenProvider jwtTokenProvider) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    public Flux<ShoppingList> getShoppingListsByUserId(String header) {
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        Query query = new Query(Criteria.where("userIds").is(userId).andOperator(ShoppingListService.notDeleted()));
+        return reactiveMongoTemplate.find(query, ShoppingList.class);
+    }
+
+    public Flux<ShoppingItem> getItemsByShoppingList(String listId) {
+        return findShoppingList(listId)
+                .flatMapMany(list -> findAllById(list.getItemIds(), ShoppingItem.class))
+                .map(item -> {
+                    if (item.getTags() == null) {
+                        item.setTags(List.of());
+                    }
+                    return item;
+                });
+    }
+
+    public Flux<ItemSet> getItemSetsByShoppingList(String listId) {
+        return findShoppingList(listId)
+                .flatMapMany(list -> findAllById(list.getItemSetIds(), ItemSet.class));
+    }
+
+    public Flux<Recipe> getAllMarketplaceRecipesByUserId(String header) {
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        return reactiveMongoTemplate.find(new Query(RecipeService.marketplaceCriteria(userId)), Recipe.class);
+    }
+
+    // soft deleted lists count as not found, like in ShoppingListService
+    private Mono<ShoppingList> findShoppingList(String listId) {
+        return reactiveMongoTemplate.findById(listId, ShoppingList.class)
+                .filter(list -> list.getDeletedAt() == null)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Shopping list not found")));
+    }
+
+    private <T> Flux<T> findAllById(List<String> ids, Class<T> type) {
+        if (ids == null || ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return reactiveMongoTemplate.find(new Query(Criteria.where("_id").in(ids)), type);
+    }
+}
@@ -0,0 +1,200 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.Visibility;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// in-memory category counts of all recipes, kept up to date by RecipeService on every recipe change
+// counts exist per scope: all recipes, per visibility and per creator
+@Slf4j
+@Component
+public class RecipeCategoryIndex {
+
+    private static final String SCOPE_ALL = "all";
+
+    private static final String[] FIELDS = {"categories", "visibility", "creatorId"};
+
+    private final MongoTemplate mongoTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // what each recipe currently contributes, so a put is idempotent and a remove knows what to subtract
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    // scope -> category -> number of recipes
+    private final Map<String, Map<String, Long>> counts = new HashMap<>();
+    // scope -> categories sorted by popularity, dropped whenever the counts of the scope change
+    private final Map<String, List<String>> rankings = new ConcurrentHashMap<>();
+
+    public RecipeCategoryIndex(MongoTemplate mongoTemplate, CacheInvalidationBus cacheInvalidationBus) {
+        this.mongoTemplate = mongoTemplate;
+        // recipes changed by other nodes
+        cacheInvalidationBus.subscribe("recipe", this::refresh, this::rebuild);
+    }
+
+    // runs after the CommandLineRunners, so a restored backup is already in the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Query query = new Query();
+        query.fields().include(FIELDS);
+
+        lock.lock();
+        try {
+            contributions.clear();
+            counts.clear();
+            rankings.clear();
+            try (Stream<Recipe> recipes = mongoTemplate.stream(query, Recipe.class)) {
+                recipes.forEach(this::putLocked);
+            }
+            log.info("Recipe category index built from {} recipes.", contributions.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(Recipe recipe) {
+        lock.lock();
+        try {
+            putLocked(recipe);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // reloads one recipe from the database, removes it when it is gone
+    public void refresh(String recipeId) {
+        Query query = new Query(Criteria.where("_id").is(recipeId));
+        query.fields().include(FIELDS);
+        Recipe recipe = mongoTemplate.findOne(query, Recipe.class);
+        if (recipe != null) {
+            put(recipe);
+        } else {
+            remove(recipeId);
+        }
+    }
+
+    public void remove(String recipeId) {
+        lock.lock();
+        try {
+            Contribution old = contributions.remove(recipeId);
+            if (old != null) {
+                apply(old, -1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return contributions.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // first category is most popular by number, last is the least popular
+    public List<String> getCategoriesByPopularity() {
+        return ranking(SCOPE_ALL);
+    }
+
+    public List<String> getCategoriesByPopularity(Visibility visibility) {
+        return ranking(visibilityScope(visibility));
+    }
+
+    public List<String> getCategoriesByPopularityOfCreator(String creatorId) {
+        return ranking(creatorScope(creatorId));
+    }
+
+    private List<String> ranking(String scope) {
+        List<String> ranking = rankings.get(scope);
+        if (ranking != null) {
+            return ranking;
+        }
+        lock.lock();
+        try {
+            ranking = counts.getOrDefault(scope, Map.of()).entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            rankings.put(scope, ranking);
+            return ranking;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocked(Recipe recipe) {
+        Contribution old = contributions.get(recipe.getId());
+        Contribution updated = Contribution.of(recipe);
+        if (updated.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            apply(old, -1);
+        }
+        apply(updated, 1);
+        contributions.put(recipe.getId(), updated);
+    }
+
+    private void apply(Contribution contribution, long delta) {
+        for (String scope : contribution.scopes()) {
+            Map<String, Long> scopeCounts = counts.computeIfAbsent(scope, k -> new HashMap<>());
+            for (String category : contribution.categories()) {
+                long count = scopeCounts.getOrDefault(category, 0L) + delta;
+                if (count > 0) {
+                    scopeCounts.put(category, count);
+                } else {
+                    scopeCounts.remove(category);
+                }
+            }
+            if (scopeCounts.isEmpty()) {
+                counts.remove(scope);
+            }
+            rankings.remove(scope);
+        }
+    }
+
+    private static String visibilityScope(Visibility visibility) {
+        return "visibility:" + visibility;
+    }
+
+    private static String creatorScope(String creatorId) {
+        return "creator:" + creatorId;
+    }
+
+    private record Contribution(Set<String> categories, Visibility visibility, String creatorId) {
+
+        static Contribution of(Recipe recipe) {
+            Set<String> categories = new HashSet<>();
+            if (recipe.getCategories() != null) {
+                recipe.getCategories().stream()
+                        .filter(category -> category != null && !category.isBlank())
+                        .forEach(categories::add);
+            }
+            Visibility visibility = recipe.getVisibility() != null ? recipe.getVisibility() : Visibility.PRIVATE;
+            return new Contribution(categories, visibility, recipe.getCreatorId());
+        }
+
+        List<String> scopes() {
+            List<String> scopes = new ArrayList<>(3);
+            scopes.add(SCOPE_ALL);
+            scopes.add(visibilityScope(visibility));
+            if (creatorId != null) {
+                scopes.add(creatorScope(creatorId));
+            }
+            return scopes;
+        }
+    }
+}
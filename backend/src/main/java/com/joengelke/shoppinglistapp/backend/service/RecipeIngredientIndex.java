@@ -0,0 +1,244 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.ItemSetItem;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.Visibility;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// inverted index from normalized ingredient name to the recipes using it
+// every recipe gets a dense slot number, each ingredient holds a BitSet of slots
+@Slf4j
+@Component
+public class RecipeIngredientIndex {
+
+    private static final String[] FIELDS = {"itemSet.itemList.name", "visibility", "creatorId", "sharedWithUserIds"};
+
+    private final MongoTemplate mongoTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> slotsByRecipeId = new HashMap<>();
+    private final List<IndexedRecipe> recipesBySlot = new ArrayList<>(); // null for free slots
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, BitSet> recipesByIngredient = new HashMap<>();
+
+    public RecipeIngredientIndex(MongoTemplate mongoTemplate, CacheInvalidationBus cacheInvalidationBus) {
+        this.mongoTemplate = mongoTemplate;
+        // recipes changed by other nodes
+        cacheInvalidationBus.subscribe("recipe", this::refresh, this::rebuild);
+    }
+
+    // runs after the CommandLineRunners, so a restored backup is already in the database
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Query query = new Query();
+        query.fields().include(FIELDS);
+
+        lock.writeLock().lock();
+        try {
+            slotsByRecipeId.clear();
+            recipesBySlot.clear();
+            freeSlots.clear();
+            recipesByIngredient.clear();
+            try (Stream<Recipe> recipes = mongoTemplate.stream(query, Recipe.class)) {
+                recipes.forEach(this::putLocked);
+            }
+            log.info("Recipe ingredient index built from {} recipes and {} ingredients.",
+                    slotsByRecipeId.size(), recipesByIngredient.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Recipe recipe) {
+        lock.writeLock().lock();
+        try {
+            putLocked(recipe);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // reloads one recipe from the database, removes it when it is gone
+    public void refresh(String recipeId) {
+        Query query = new Query(Criteria.where("_id").is(recipeId));
+        query.fields().include(FIELDS);
+        Recipe recipe = mongoTemplate.findOne(query, Recipe.class);
+        if (recipe != null) {
+            put(recipe);
+        } else {
+            remove(recipeId);
+        }
+    }
+
+    public void remove(String recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByRecipeId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // returns the recipes accessible by the user that use at least one of the items,
+    // best coverage first, then fewest missing ingredients
+    public List<IngredientMatch> match(Collection<String> itemNames, String userId, int limit) {
+        Set<String> available = new HashSet<>();
+        for (String itemName : itemNames) {
+            String ingredient = normalize(itemName);
+            if (!ingredient.isEmpty()) {
+                available.add(ingredient);
+            }
+        }
+        if (available.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] hits = new int[recipesBySlot.size()];
+            BitSet candidates = new BitSet(recipesBySlot.size());
+            for (String ingredient : available) {
+                BitSet slots = recipesByIngredient.get(ingredient);
+                if (slots == null) {
+                    continue;
+                }
+                candidates.or(slots);
+                for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                    hits[slot]++;
+                }
+            }
+
+            // keep only the best matches, the head of the queue is the worst of them
+            PriorityQueue<IngredientMatch> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                IndexedRecipe recipe = recipesBySlot.get(slot);
+                if (!recipe.isAccessibleBy(userId)) {
+                    continue;
+                }
+                best.add(toMatch(recipe, hits[slot], available));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<IngredientMatch> matches = new ArrayList<>(best);
+            matches.sort(RANKING);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // lower case, trimmed and with single spaces, so "Tomaten " and "tomaten" are the same ingredient
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void putLocked(Recipe recipe) {
+        removeLocked(recipe.getId());
+
+        String[] ingredients = ingredientsOf(recipe);
+        if (ingredients.length == 0) {
+            return;
+        }
+
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = recipesBySlot.size();
+            recipesBySlot.add(null);
+        } else {
+            slot = freeSlots.pop();
+        }
+        recipesBySlot.set(slot, new IndexedRecipe(
+                recipe.getId(),
+                ingredients,
+                recipe.getVisibility() != null ? recipe.getVisibility() : Visibility.PRIVATE,
+                recipe.getCreatorId(),
+                recipe.getSharedWithUserIds() != null ? Set.copyOf(recipe.getSharedWithUserIds()) : Set.of()
+        ));
+        slotsByRecipeId.put(recipe.getId(), slot);
+        for (String ingredient : ingredients) {
+            recipesByIngredient.computeIfAbsent(ingredient, k -> new BitSet()).set(slot);
+        }
+    }
+
+    private void removeLocked(String recipeId) {
+        Integer slot = slotsByRecipeId.remove(recipeId);
+        if (slot == null) {
+            return;
+        }
+        for (String ingredient : recipesBySlot.get(slot).ingredients()) {
+            BitSet slots = recipesByIngredient.get(ingredient);
+            slots.clear(slot);
+            if (slots.isEmpty()) {
+                recipesByIngredient.remove(ingredient);
+            }
+        }
+        recipesBySlot.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    private static String[] ingredientsOf(Recipe recipe) {
+        if (recipe.getItemSet() == null || recipe.getItemSet().getItemList() == null) {
+            return new String[0];
+        }
+        return recipe.getItemSet().getItemList().stream()
+                .map(ItemSetItem::getName)
+                .map(RecipeIngredientIndex::normalize)
+                .filter(ingredient -> !ingredient.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private static IngredientMatch toMatch(IndexedRecipe recipe, int matched, Set<String> available) {
+        List<String> missing = new ArrayList<>();
+        for (String ingredient : recipe.ingredients()) {
+            if (!available.contains(ingredient)) {
+                missing.add(ingredient);
+            }
+        }
+        double coverage = (double) matched / recipe.ingredients().length;
+        return new IngredientMatch(recipe.recipeId(), matched, missing, coverage);
+    }
+
+    private static final Comparator<IngredientMatch> RANKING = Comparator
+            .comparingDouble(IngredientMatch::coverage).reversed()
+            .thenComparingInt(match -> match.missingIngredients().size())
+            .thenComparing(IngredientMatch::recipeId);
+
+    public record IngredientMatch(String recipeId, int matchedIngredients, List<String> missingIngredients, double coverage) {
+    }
+
+    private record IndexedRecipe(String recipeId, String[] ingredients, Visibility visibility, String creatorId,
+                                 Set<String> sharedWithUserIds) {
+
+        // same rules as the marketplace, plus the own recipes of the user
+        boolean isAccessibleBy(String userId) {
+            return visibility == Visibility.PUBLIC
+                    || userId.equals(creatorId)
+                    || (visibility == Visibility.SHARED && sharedWithUserIds.contains(userId));
+        }
+    }
+}
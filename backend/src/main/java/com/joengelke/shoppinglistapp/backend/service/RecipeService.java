@@ -1,19 +1,29 @@
 package com.joengelke.shoppinglistapp.backend.service;
 
 import com.joengelke.shoppinglistapp.backend.dto.FileResourceDTO;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeFeedPage;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeMatch;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeSummary;
 import com.joengelke.shoppinglistapp.backend.dto.UserResponse;
 import com.joengelke.shoppinglistapp.backend.model.ItemSet;
 import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.RecipeSortOption;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
 import com.joengelke.shoppinglistapp.backend.model.Visibility;
 import com.joengelke.shoppinglistapp.backend.repository.RecipeRepository;
 import com.joengelke.shoppinglistapp.backend.repository.UserRepository;
 import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.bson.types.ObjectId;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.http.MediaType;
@@ -22,25 +32,37 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Service
 public class RecipeService {
 
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+
     private final RecipeRepository recipeRepository;
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
     private final MongoTemplate mongoTemplate;
     private final GridFsTemplate gridFsTemplate;
+    private final RecipeCategoryIndex recipeCategoryIndex;
+    private final RecipeIngredientIndex recipeIngredientIndex;
+    private final ShoppingListService shoppingListService;
+    private final Counter recipeFileBytesServed;
 
-    public RecipeService(RecipeRepository recipeRepository, UserRepository userRepository, UserService userService, JwtTokenProvider jwtTokenProvider, MongoTemplate mongoTemplate, GridFsTemplate gridFsTemplate) {
+    public RecipeService(RecipeRepository recipeRepository, UserRepository userRepository, UserService userService, JwtTokenProvider jwtTokenProvider, MongoTemplate mongoTemplate, GridFsTemplate gridFsTemplate, RecipeCategoryIndex recipeCategoryIndex, RecipeIngredientIndex recipeIngredientIndex, ShoppingListService shoppingListService, MeterRegistry meterRegistry) {
         this.recipeRepository = recipeRepository;
         this.userService = userService;
         this.jwtTokenProvider = jwtTokenProvider;
         this.mongoTemplate = mongoTemplate;
         this.gridFsTemplate = gridFsTemplate;
+        this.recipeCategoryIndex = recipeCategoryIndex;
+        this.recipeIngredientIndex = recipeIngredientIndex;
+        this.shoppingListService = shoppingListService;
+        this.recipeFileBytesServed = Counter.builder("gridfs.bytes.served")
+                .baseUnit("bytes")
+                .tag("file", "recipe")
+                .register(meterRegistry);
     }
 
     public List<Recipe> getRecipesByUserId(String header) {
@@ -63,22 +85,129 @@ public class RecipeService {
     public List<Recipe> getAllMarketplaceRecipesByUserId(String header) {
         String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
 
-        // Get all receipts where:
-        // - user is creator
-        // - OR receipt is shared with the user
-        // - OR receipt is public
-        Criteria criteria = new Criteria().orOperator(
-                new Criteria().andOperator(
-                        Criteria.where("visibility").is(Visibility.SHARED),
-                        Criteria.where("sharedWithUserIds").in(userId)
-                ),
-                Criteria.where("visibility").is(Visibility.PUBLIC)
-        );
-        Query query = new Query(criteria);
+        Query query = new Query(marketplaceCriteria(userId));
 
         return mongoTemplate.find(query, Recipe.class);
     }
 
+    public RecipeFeedPage getMarketplaceFeed(String header, RecipeSortOption sort, String cursor, int limit) {
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        RecipeSortOption sortOption = sort != null ? sort : RecipeSortOption.NEWEST;
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+
+        Criteria criteria = marketplaceCriteria(userId);
+        if (cursor != null && !cursor.isBlank()) {
+            criteria = new Criteria().andOperator(criteria, cursorCriteria(sortOption, cursor));
+        }
+
+        // fetch one more than requested to know if there is a next page
+        Query query = new Query(criteria)
+                .with(feedSort(sortOption))
+                .limit(pageSize + 1);
+        query.fields()
+                .include("name", "creatorUsername", "categories", "createdAt")
+                .slice("recipeFileIds", 1);
+
+        List<Recipe> recipes = mongoTemplate.find(query, Recipe.class);
+        boolean hasNext = recipes.size() > pageSize;
+        if (hasNext) {
+            recipes = recipes.subList(0, pageSize);
+        }
+
+        List<RecipeSummary> summaries = recipes.stream().map(RecipeSummary::new).toList();
+        String nextCursor = hasNext ? encodeCursor(sortOption, recipes.get(recipes.size() - 1)) : null;
+        return new RecipeFeedPage(summaries, nextCursor);
+    }
+
+    public List<RecipeSummary> searchRecipes(String header, String text, List<String> categories, Visibility visibility, int page, int size) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        int pageSize = Math.max(1, Math.min(size, MAX_FEED_PAGE_SIZE));
+
+        // same access rules as the marketplace, filters narrow the result further
+        List<Criteria> filters = new ArrayList<>();
+        filters.add(marketplaceCriteria(userId));
+        if (categories != null && !categories.isEmpty()) {
+            filters.add(Criteria.where("categories").all(categories));
+        }
+        if (visibility != null) {
+            filters.add(Criteria.where("visibility").is(visibility));
+        }
+
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .addCriteria(new Criteria().andOperator(filters))
+                .skip((long) Math.max(page, 0) * pageSize)
+                .limit(pageSize);
+        query.fields()
+                .include("name", "creatorUsername", "categories", "createdAt")
+                .slice("recipeFileIds", 1);
+
+        return mongoTemplate.find(query, Recipe.class).stream()
+                .map(RecipeSummary::new)
+                .toList();
+    }
+
+    public List<RecipeMatch> matchRecipesByItemNames(String header, List<String> itemNames, int limit) {
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        List<RecipeIngredientIndex.IngredientMatch> matches =
+                recipeIngredientIndex.match(itemNames, userId, Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE)));
+        if (matches.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // load the summaries of all matches with one query, the index already decided the order
+        Query query = new Query(Criteria.where("_id").in(matches.stream().map(RecipeIngredientIndex.IngredientMatch::recipeId).toList()));
+        query.fields()
+                .include("name", "creatorUsername", "categories", "createdAt")
+                .slice("recipeFileIds", 1);
+        Map<String, RecipeSummary> summariesById = new HashMap<>();
+        for (Recipe recipe : mongoTemplate.find(query, Recipe.class)) {
+            summariesById.put(recipe.getId(), new RecipeSummary(recipe));
+        }
+
+        return matches.stream()
+                .filter(match -> summariesById.containsKey(match.recipeId()))
+                .map(match -> new RecipeMatch(
+                        summariesById.get(match.recipeId()),
+                        match.matchedIngredients(),
+                        match.missingIngredients(),
+                        match.coverage()))
+                .toList();
+    }
+
+    public List<RecipeMatch> matchRecipesByShoppingList(String header, String shoppingListId, boolean includeChecked, int limit) {
+        List<String> itemNames = shoppingListService.getItemsByShoppingList(shoppingListId).stream()
+                .filter(item -> includeChecked || !item.isChecked())
+                .map(ShoppingItem::getName)
+                .toList();
+        return matchRecipesByItemNames(header, itemNames, limit);
+    }
+
+    public Recipe getRecipeById(String header, String recipeId) {
+        String token = header.replace("Bearer ", "");
+        String userId = jwtTokenProvider.getUserIdFromToken(token);
+        Recipe recipe = recipeRepository.findById(recipeId)
+                .orElseThrow(() -> new NoSuchElementException("Recipe not found"));
+
+        boolean accessible = recipe.getCreatorId().equals(userId)
+                || recipe.getVisibility() == Visibility.PUBLIC
+                || (recipe.getVisibility() == Visibility.SHARED && recipe.getSharedWithUserIds().contains(userId))
+                || jwtTokenProvider.isAdmin(token);
+
+        // recipes that were saved for the user are visible as long as they are not private
+        if (!accessible && recipe.getVisibility() != Visibility.PRIVATE) {
+            List<String> recipeIds = userService.getRecipeIdsByUserId(userId);
+            accessible = recipeIds != null && recipeIds.contains(recipeId);
+        }
+        if (!accessible) {
+            throw new AccessDeniedException("You are not allowed to view this recipe");
+        }
+        return recipe;
+    }
+
     public Recipe createRecipe(String header, Recipe recipe) {
         String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
         String username = jwtTokenProvider.getUsernameFromToken(header.replace("Bearer ", ""));
@@ -96,6 +225,7 @@ public class RecipeService {
                         recipe.getRecipeFileIds()
                 )
         );
+        indexRecipe(newRecipe);
         userService.addRecipeToUser(userId, newRecipe.getId());
         return newRecipe;
     }
@@ -109,6 +239,7 @@ public class RecipeService {
         }
         Recipe recipe = new Recipe(itemSet.getName(), userId, username, itemSet, "", new ArrayList<>(), new ArrayList<>(), Visibility.PRIVATE, new ArrayList<>(), new ArrayList<>());
         Recipe savedRecipe = recipeRepository.save(recipe);
+        indexRecipe(savedRecipe);
         userService.addRecipeToUser(userId, savedRecipe.getId());
         return savedRecipe;
     }
@@ -121,7 +252,9 @@ public class RecipeService {
             throw new AccessDeniedException("You are not allowed to change the visibility");
         }
         recipe.setVisibility(visibility);
-        return recipeRepository.save(recipe);
+        Recipe savedRecipe = recipeRepository.save(recipe);
+        indexRecipe(savedRecipe);
+        return savedRecipe;
     }
 
     public Recipe updateRecipe(String header, Recipe newRecipe, List<MultipartFile> recipeFiles) {
@@ -149,12 +282,6 @@ public class RecipeService {
                 .filter(oldId -> !newFileIds.contains(oldId))
                 .toList();
 
-        if (!removedFileIds.isEmpty()) {
-            gridFsTemplate.delete(
-                    Query.query(Criteria.where("_id").in(removedFileIds))
-            );
-        }
-
         // Add new uploaded files (if recipeFiles contains fresh files)
         if (recipeFiles != null && !recipeFiles.isEmpty()) {
             for (MultipartFile file : recipeFiles) {
@@ -172,7 +299,16 @@ public class RecipeService {
         }
         existingRecipe.setRecipeFileIds(newFileIds);
 
-        return recipeRepository.save(existingRecipe);
+        // removed files are deleted only after the recipe no longer references them,
+        // files stored by a failed update are left to the orphan sweep
+        Recipe savedRecipe = recipeRepository.save(existingRecipe);
+        indexRecipe(savedRecipe);
+        if (!removedFileIds.isEmpty()) {
+            gridFsTemplate.delete(
+                    Query.query(Criteria.where("_id").in(removedFileIds))
+            );
+        }
+        return savedRecipe;
     }
 
     public List<Recipe> addRecipeToUser(String header, String recipeId, String username) {
@@ -209,6 +345,7 @@ public class RecipeService {
         }
 
         GridFsResource resource = gridFsTemplate.getResource(gridFSFile);
+        recipeFileBytesServed.increment(gridFSFile.getLength());
 
         String contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
         if (gridFSFile.getMetadata() != null && gridFSFile.getMetadata().getString("_contentType") != null) {
@@ -222,17 +359,110 @@ public class RecipeService {
         );
     }
 
-    public List<String> getRecipeCategoriesByPopularity() {
+    public List<String> getRecipeCategoriesByPopularity(String header, Visibility visibility, boolean onlyOwnRecipes) {
         // first category is most popular by number, last is the least popular
-        List<Recipe> allRecipes = recipeRepository.findAll();
-        return allRecipes.stream()
-                .flatMap(recipe -> recipe.getCategories().stream())
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-                .entrySet()
-                .stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        if (onlyOwnRecipes) {
+            String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+            return recipeCategoryIndex.getCategoriesByPopularityOfCreator(userId);
+        }
+        if (visibility != null) {
+            return recipeCategoryIndex.getCategoriesByPopularity(visibility);
+        }
+        return recipeCategoryIndex.getCategoriesByPopularity();
+    }
+
+    // keeps the in-memory recipe indexes in sync with the saved recipe
+    private void indexRecipe(Recipe recipe) {
+        recipeCategoryIndex.put(recipe);
+        recipeIngredientIndex.put(recipe);
+    }
+
+    private void unindexRecipe(String recipeId) {
+        recipeCategoryIndex.remove(recipeId);
+        recipeIngredientIndex.remove(recipeId);
+    }
+
+    // Get all recipes where:
+    // - recipe is shared with the user
+    // - OR recipe is public
+    static Criteria marketplaceCriteria(String userId) {
+        return new Criteria().orOperator(
+                new Criteria().andOperator(
+                        Criteria.where("visibility").is(Visibility.SHARED),
+                        Criteria.where("sharedWithUserIds").in(userId)
+                ),
+                Criteria.where("visibility").is(Visibility.PUBLIC)
+        );
+    }
+
+    // the _id is always part of the sort so the order is stable for recipes with equal sort values
+    private Sort feedSort(RecipeSortOption sortOption) {
+        return switch (sortOption) {
+            case NEWEST -> Sort.by(Sort.Direction.DESC, "createdAt", "_id");
+            case OLDEST -> Sort.by(Sort.Direction.ASC, "createdAt", "_id");
+            case NAME -> Sort.by(Sort.Direction.ASC, "name", "_id");
+        };
+    }
+
+    // keyset pagination: continue strictly after the last recipe of the previous page
+    // a cursor without value means the sort field of the last recipe was missing, e.g. old recipes without createdAt
+    private Criteria cursorCriteria(RecipeSortOption sortOption, String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        int separator = decoded.indexOf(':');
+        String id = separator < 0 ? decoded : decoded.substring(0, separator);
+        if (!ObjectId.isValid(id)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        ObjectId lastId = new ObjectId(id);
+        String lastValue = separator < 0 ? null : decoded.substring(separator + 1);
+
+        return switch (sortOption) {
+            case NEWEST -> after("createdAt", lastValue == null ? null : createdAtOf(lastValue), lastId, false);
+            case OLDEST -> after("createdAt", lastValue == null ? null : createdAtOf(lastValue), lastId, true);
+            case NAME -> after("name", lastValue, lastId, true);
+        };
+    }
+
+    // mongo sorts a missing or null field before every value, so those recipes come first ascending and last descending
+    private static Criteria after(String field, Object lastValue, ObjectId lastId, boolean ascending) {
+        if (lastValue == null) {
+            return ascending
+                    ? new Criteria().orOperator(
+                            Criteria.where(field).is(null).and("_id").gt(lastId),
+                            Criteria.where(field).ne(null))
+                    : Criteria.where(field).is(null).and("_id").lt(lastId);
+        }
+        if (ascending) {
+            return new Criteria().orOperator(
+                    Criteria.where(field).gt(lastValue),
+                    Criteria.where(field).is(lastValue).and("_id").gt(lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(field).lt(lastValue),
+                Criteria.where(field).is(lastValue).and("_id").lt(lastId),
+                Criteria.where(field).is(null));
+    }
+
+    private static Date createdAtOf(String lastValue) {
+        try {
+            return new Date(Long.parseLong(lastValue));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private String encodeCursor(RecipeSortOption sortOption, Recipe lastRecipe) {
+        String lastValue = switch (sortOption) {
+            case NEWEST, OLDEST -> lastRecipe.getCreatedAt() == null ? null : String.valueOf(lastRecipe.getCreatedAt().toEpochMilli());
+            case NAME -> lastRecipe.getName();
+        };
+        String cursor = lastValue == null ? lastRecipe.getId() : lastRecipe.getId() + ":" + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
     }
 
     public void removeRecipeFromUser(String header, String recipeId, String userId) {
@@ -264,5 +494,6 @@ public class RecipeService {
         }
         userService.removeRecipeFromAllUsers(recipeId);
         recipeRepository.delete(recipe);
+        unindexRecipe(recipeId);
     }
 }
\ No newline at end of file
@@ -20,16 +20,20 @@ public class ShoppingItemService {
     private final JwtTokenProvider jwtTokenProvider;
     private final ItemSetService itemSetService;
     private final AnalyticsService analyticsService;
+    private final ShoppingListViewService shoppingListViewService;
+    private final SingleFlight singleFlight;
 
-    public ShoppingItemService(ShoppingItemRepository shoppingItemRepository, JwtTokenProvider jwtTokenProvider, ItemSetService itemSetService, AnalyticsService analyticsService) {
+    public ShoppingItemService(ShoppingItemRepository shoppingItemRepository, JwtTokenProvider jwtTokenProvider, ItemSetService itemSetService, AnalyticsService analyticsService, ShoppingListViewService shoppingListViewService, SingleFlight singleFlight) {
         this.shoppingItemRepository = shoppingItemRepository;
         this.jwtTokenProvider = jwtTokenProvider;
         this.itemSetService = itemSetService;
         this.analyticsService = analyticsService;
+        this.shoppingListViewService = shoppingListViewService;
+        this.singleFlight = singleFlight;
     }
 
-    // creates one new item
-    public ShoppingItem createItem(String header, ShoppingItem shoppingItem, boolean checked) {
+    // creates one new item in the list
+    public ShoppingItem createItem(String header, String listId, ShoppingItem shoppingItem, boolean checked) {
 
         String username = jwtTokenProvider.getUsernameFromToken(header.replace("Bearer ", ""));
 
@@ -63,6 +67,8 @@ public class ShoppingItemService {
 
         shoppingItem.setEditedBy(username);
 
+        shoppingItem.setListId(listId);
+
         return shoppingItemRepository.save(shoppingItem);
     }
 
@@ -111,7 +117,7 @@ public class ShoppingItemService {
 
         shoppingItem.setEditedAt(Instant.now());
 
-        return shoppingItemRepository.save(shoppingItem);
+        return saveAndRefreshView(shoppingItem);
     }
 
     // just change checked status for better performance
@@ -129,7 +135,7 @@ public class ShoppingItemService {
             shoppingItem.setAmount(0.0);
             shoppingItem.setUnit("");
         }
-        return shoppingItemRepository.save(shoppingItem);
+        return saveAndRefreshView(shoppingItem);
     }
 
     // remove one item amount
@@ -144,7 +150,7 @@ public class ShoppingItemService {
             // checks item so its not on active list anymore
             shoppingItem.setChecked(true);
         }
-        return shoppingItemRepository.save(shoppingItem);
+        return saveAndRefreshView(shoppingItem);
     }
 
     public void deleteItemById(String id) {
@@ -167,7 +173,7 @@ public class ShoppingItemService {
         shoppingItem.setEditedAt(Instant.now());
         shoppingItem.setEditedBy(username);
 
-        return shoppingItemRepository.save(shoppingItem);
+        return saveAndRefreshView(shoppingItem);
     }
 
     public List<ShoppingItem> addAllItemSetItemsToShoppingList(String header, String itemSetId) {
@@ -192,7 +198,7 @@ public class ShoppingItemService {
             updatedItems.add(shoppingItem);
         }
 
-        return shoppingItemRepository.saveAll(updatedItems);
+        return saveAllAndRefreshViews(updatedItems);
     }
 
     public ShoppingItem removeItemSetItemFromShoppingList(String header, ItemSetItem itemSetItem) {
@@ -207,7 +213,7 @@ public class ShoppingItemService {
         shoppingItem.setEditedAt(Instant.now());
         shoppingItem.setEditedBy(username);
 
-        return shoppingItemRepository.save(shoppingItem);
+        return saveAndRefreshView(shoppingItem);
     }
 
     public List<ShoppingItem> removeAllItemSetItemsFromShoppingList(String header, String itemSetId) {
@@ -232,7 +238,23 @@ public class ShoppingItemService {
             updatedItems.add(shoppingItem);
         }
 
-        return shoppingItemRepository.saveAll(updatedItems);
+        return saveAllAndRefreshViews(updatedItems);
+    }
+
+    // saves the item and replaces it in the shopping list view
+    // item reads of the list that started before the save are not joined afterwards
+    private ShoppingItem saveAndRefreshView(ShoppingItem shoppingItem) {
+        ShoppingItem savedItem = shoppingItemRepository.save(shoppingItem);
+        singleFlight.forget(ShoppingListService.ITEMS_READ, savedItem.getListId());
+        shoppingListViewService.refreshItem(savedItem);
+        return savedItem;
+    }
+
+    private List<ShoppingItem> saveAllAndRefreshViews(List<ShoppingItem> shoppingItems) {
+        List<ShoppingItem> savedItems = shoppingItemRepository.saveAll(shoppingItems);
+        savedItems.forEach(item -> singleFlight.forget(ShoppingListService.ITEMS_READ, item.getListId()));
+        shoppingListViewService.refreshItems(savedItems);
+        return savedItems;
     }
 
     // HELP METHOD TO UPDATE DB AFTER ITEM CHANGE
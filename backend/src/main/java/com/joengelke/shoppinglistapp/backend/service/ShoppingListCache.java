@@ -0,0 +1,135 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.repository.ShoppingListRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+// read-through cache of the shopping list documents, almost every list and item operation starts with reading one
+// every write evicts the list after it reached the database, so one node always sees its own writes
+// no write puts its result: two concurrent saves could put in the wrong order and leave the older list cached
+// the eviction waits for a load of the same list that is in flight, so a load that read the list before the write
+// does not stay cached either
+// with several nodes the change stream of the CacheInvalidationBus evicts the writes of the others,
+// so the cache is only on by default together with cache.invalidation.enabled
+// changes of an existing list go through update as $set/$addToSet/$pull, never as a replace of a possibly stale copy,
+// so a stale read can not drop the ids that another node added in the meantime
+// callers get copies and must not touch the cached instance
+// a save only replaces a list that still exists and is not soft deleted, a copy read before the delete (or the purge)
+// must neither write deletedAt=null back nor bring the purged list back
+@Slf4j
+@Service
+public class ShoppingListCache {
+
+    private final ShoppingListRepository shoppingListRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Cache<String, ShoppingList> cache;
+
+    public ShoppingListCache(ShoppingListRepository shoppingListRepository, MongoTemplate mongoTemplate, CacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry,
+                             @Value("${shopping-list.cache.enabled:${cache.invalidation.enabled:false}}") boolean enabled,
+                             @Value("${shopping-list.cache.maximum-size:10000}") long maximumSize,
+                             @Value("${shopping-list.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.shoppingListRepository = shoppingListRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "shoppingList");
+            cacheInvalidationBus.subscribe("shoppingList", this::evict, this::evictAll);
+        } else {
+            log.info("Shopping list cache disabled.");
+        }
+    }
+
+    // soft deleted lists are cached as well, the callers decide how to treat them
+    public Optional<ShoppingList> findById(String listId) {
+        if (!enabled) {
+            return shoppingListRepository.findById(listId);
+        }
+        // a list that does not exist is not cached, the loader returning null leaves no entry
+        ShoppingList cached = cache.get(listId, id -> shoppingListRepository.findById(id).orElse(null));
+        return Optional.ofNullable(cached).map(ShoppingListCache::copy);
+    }
+
+    // a new list always gets a new id
+    public ShoppingList insert(ShoppingList shoppingList) {
+        shoppingList.setId(null);
+        return mongoTemplate.insert(shoppingList);
+    }
+
+    public ShoppingList save(ShoppingList shoppingList) {
+        Query notDeleted = new Query(Criteria.where("_id").is(shoppingList.getId()).and("deletedAt").is(null));
+        try {
+            if (mongoTemplate.findAndReplace(notDeleted, shoppingList) == null) {
+                throw new NoSuchElementException("Shopping list not found"); // deleted or purged since it was read
+            }
+        } finally {
+            cache.invalidate(shoppingList.getId());
+        }
+        return shoppingList;
+    }
+
+    // changes a list that is not soft deleted in the database and returns it as it is after the change
+    public ShoppingList update(String listId, Update update) {
+        Query notDeleted = new Query(Criteria.where("_id").is(listId).and("deletedAt").is(null));
+        try {
+            ShoppingList updated = mongoTemplate.findAndModify(notDeleted, update,
+                    FindAndModifyOptions.options().returnNew(true), ShoppingList.class);
+            if (updated == null) {
+                throw new NoSuchElementException("Shopping list not found");
+            }
+            return updated;
+        } finally {
+            cache.invalidate(listId);
+        }
+    }
+
+    public void evict(String listId) {
+        cache.invalidate(listId);
+    }
+
+    public void evictAll(Collection<String> listIds) {
+        cache.invalidateAll(listIds);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private static ShoppingList copy(ShoppingList shoppingList) {
+        ShoppingList copy = new ShoppingList();
+        copy.setId(shoppingList.getId());
+        copy.setName(shoppingList.getName());
+        copy.setCreatedAt(shoppingList.getCreatedAt());
+        copy.setItemIds(copyOf(shoppingList.getItemIds()));
+        copy.setItemSetIds(copyOf(shoppingList.getItemSetIds()));
+        copy.setUserIds(copyOf(shoppingList.getUserIds()));
+        copy.setDeletedAt(shoppingList.getDeletedAt());
+        return copy;
+    }
+
+    private static <T> ArrayList<T> copyOf(Collection<T> values) {
+        return values == null ? null : new ArrayList<>(values);
+    }
+}
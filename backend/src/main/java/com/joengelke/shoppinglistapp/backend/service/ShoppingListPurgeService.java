@@ -0,0 +1,114 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// removes the contents of soft deleted shopping lists as a background job
+// the list document goes last, so a purge interrupted by a restart still knows its items and is simply run again
+@Slf4j
+@Service
+public class ShoppingListPurgeService {
+
+    public static final String JOB_TYPE = "SHOPPING_LIST_PURGE";
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final BackgroundJobService backgroundJobService;
+    private final ShoppingListViewService shoppingListViewService;
+    private final ItemNameSuggestionIndex itemNameSuggestionIndex;
+    private final ShoppingListCache shoppingListCache;
+
+    public ShoppingListPurgeService(MongoTemplate mongoTemplate, BackgroundJobService backgroundJobService, ShoppingListViewService shoppingListViewService, ItemNameSuggestionIndex itemNameSuggestionIndex, ShoppingListCache shoppingListCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.backgroundJobService = backgroundJobService;
+        this.shoppingListViewService = shoppingListViewService;
+        this.itemNameSuggestionIndex = itemNameSuggestionIndex;
+        this.shoppingListCache = shoppingListCache;
+    }
+
+    // a list has one purge job, a second start returns it (and a failed one is only retried by the resume scan)
+    public BackgroundJob startPurge(String listId, String requestedBy) {
+        return backgroundJobService.startOnce(JOB_TYPE, listId, requestedBy, job -> purge(job.getId(), listId));
+    }
+
+    // resumes interrupted and failed purges and starts one for lists that were soft deleted right before a crash
+    // like the orphan sweeps, only the node holding the lease of a job runs it
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jobs.resume-interval-ms:300000}", initialDelayString = "${jobs.resume-interval-ms:300000}")
+    public void resumeUnfinishedPurges() {
+        Set<String> purging = new HashSet<>();
+        for (BackgroundJob job : backgroundJobService.getJobsToResume(JOB_TYPE)) {
+            purging.add(job.getSubjectId());
+            backgroundJobService.submit(job, j -> purge(j.getId(), j.getSubjectId()));
+        }
+
+        Query deleted = new Query(Criteria.where("deletedAt").ne(null));
+        deleted.fields().include("_id");
+        for (ShoppingList list : mongoTemplate.find(deleted, ShoppingList.class)) {
+            if (!purging.contains(list.getId())) {
+                startPurge(list.getId(), null);
+                purging.add(list.getId());
+            }
+        }
+        if (!purging.isEmpty()) {
+            log.debug("Resumed purging {} deleted shopping lists.", purging.size());
+        }
+    }
+
+    private void purge(String jobId, String listId) {
+        ShoppingList list = mongoTemplate.findById(listId, ShoppingList.class);
+        if (list == null) {
+            return; // already purged
+        }
+
+        backgroundJobService.setStep(jobId, "items");
+        removeInBatches(jobId, list.getItemIds(), ShoppingItem.class, "itemsDeleted");
+
+        backgroundJobService.setStep(jobId, "itemSets");
+        removeInBatches(jobId, list.getItemSetIds(), ItemSet.class, "itemSetsDeleted");
+
+        backgroundJobService.setStep(jobId, "activity");
+        Query activityQuery = new Query(Criteria.where("listId").is(listId)).limit(BATCH_SIZE);
+        activityQuery.fields().include("_id");
+        List<ShoppingItemActivity> activities;
+        while (!(activities = mongoTemplate.find(activityQuery, ShoppingItemActivity.class)).isEmpty()) {
+            long removed = removeByIds(activities.stream().map(ShoppingItemActivity::getId).toList(), ShoppingItemActivity.class);
+            backgroundJobService.addProgress(jobId, "activitiesDeleted", removed);
+        }
+
+        backgroundJobService.setStep(jobId, "shoppingList");
+        shoppingListViewService.deleteView(listId);
+        itemNameSuggestionIndex.removeList(listId);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(listId)), ShoppingList.class);
+        shoppingListCache.evict(listId);
+        backgroundJobService.setStep(jobId, "done");
+    }
+
+    private void removeInBatches(String jobId, List<String> ids, Class<?> entityClass, String counter) {
+        if (ids == null) {
+            return;
+        }
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            backgroundJobService.addProgress(jobId, counter, removeByIds(batch, entityClass));
+        }
+    }
+
+    private long removeByIds(List<String> ids, Class<?> entityClass) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), entityClass).getDeletedCount();
+    }
+}
@@ -1,32 +1,71 @@
 package com.joengelke.shoppinglistapp.backend.service;
 
+import com.joengelke.shoppinglistapp.backend.dto.TagGroup;
 import com.joengelke.shoppinglistapp.backend.dto.UserResponse;
 import com.joengelke.shoppinglistapp.backend.model.*;
-import com.joengelke.shoppinglistapp.backend.repository.ShoppingListRepository;
 import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class ShoppingListService {
 
-    private final ShoppingListRepository shoppingListRepository;
+    // single flight resources of the list reads
+    static final String USERS_READ = "shoppingListUsers";
+    static final String ITEMS_READ = "shoppingListItems";
+    static final String ITEM_SETS_READ = "shoppingListItemSets";
+
+    private final ShoppingListCache shoppingListCache;
     private final ShoppingItemService shoppingItemService;
     private final ItemSetService itemSetService;
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ShoppingListViewService shoppingListViewService;
+    private final MongoTemplate mongoTemplate;
+    private final ShoppingListPurgeService shoppingListPurgeService;
+    private final SingleFlight singleFlight;
+
+    // locale of the name order, the shopping item indexes are created with the same collation
+    @Value("${items.collation-locale:de}")
+    private String collationLocale;
 
-    public ShoppingListService(ShoppingListRepository shoppingListRepository, ShoppingItemService shoppingItemService, ItemSetService itemSetService, UserService userService, JwtTokenProvider jwtTokenProvider) {
-        this.shoppingListRepository = shoppingListRepository;
+    public ShoppingListService(ShoppingListCache shoppingListCache, ShoppingItemService shoppingItemService, ItemSetService itemSetService, UserService userService, JwtTokenProvider jwtTokenProvider, ShoppingListViewService shoppingListViewService, MongoTemplate mongoTemplate, ShoppingListPurgeService shoppingListPurgeService, SingleFlight singleFlight) {
+        this.shoppingListCache = shoppingListCache;
         this.shoppingItemService = shoppingItemService;
         this.itemSetService = itemSetService;
         this.userService = userService;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.shoppingListViewService = shoppingListViewService;
+        this.mongoTemplate = mongoTemplate;
+        this.shoppingListPurgeService = shoppingListPurgeService;
+        this.singleFlight = singleFlight;
     }
 
     public ShoppingList createShoppingList(ShoppingList shoppingList, String header) {
@@ -49,98 +88,190 @@ public class ShoppingListService {
         if (shoppingList.getUserIds() == null) {
             shoppingList.setUserIds(List.of(user.getId()));
         }
-        return shoppingListRepository.save(shoppingList);
+        ShoppingList savedShoppingList = shoppingListCache.insert(shoppingList);
+        shoppingListViewService.rebuild(savedShoppingList.getId());
+        return savedShoppingList;
     }
 
     public List<ShoppingList> getAllShoppingLists() {
-        return shoppingListRepository.findAll();
+        return mongoTemplate.find(new Query(notDeleted()), ShoppingList.class);
     }
 
     public List<ShoppingList> getShoppingListsByUserId(String header) {
         String username = jwtTokenProvider.getUsernameFromToken(header.replace("Bearer ", ""));
         User user = userService.getUserByUsername(username);
 
-        return shoppingListRepository.findAll().stream()
-                .filter(list -> list.getUserIds().contains(user.getId()))
-                .collect(Collectors.toList());
+        return mongoTemplate.find(new Query(Criteria.where("userIds").is(user.getId()).andOperator(notDeleted())), ShoppingList.class);
     }
 
     public ShoppingList updateShoppingList(ShoppingList newShoppingList) {
-        ShoppingList shoppingList = shoppingListRepository.findById(newShoppingList.getId())
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
-
         // update ShoppingList attributes
-        if (newShoppingList.getName() != null) {
-            shoppingList.setName(newShoppingList.getName());
+        if (newShoppingList.getName() == null) {
+            return findShoppingList(newShoppingList.getId());
         }
-        return shoppingListRepository.save(shoppingList);
+        ShoppingList savedShoppingList = updateList(newShoppingList.getId(), new Update().set("name", newShoppingList.getName()));
+        shoppingListViewService.refreshName(savedShoppingList);
+        return savedShoppingList;
+    }
+
+    // list header, items, item sets and members with one read
+    public ShoppingListView getShoppingListView(String listId) {
+        return shoppingListViewService.getView(listId);
     }
 
+    // members of a list opened at the same time are read once
     public List<UserResponse> getShoppingListUser(String listId) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        return singleFlight.execute(USERS_READ, listId, () -> {
+            ShoppingList shoppingList = findShoppingList(listId);
 
-        return userService.getAllUserByIds(shoppingList.getUserIds());
+            return userService.getAllUserByIds(shoppingList.getUserIds());
+        });
     }
 
     public UserResponse addUserToShoppingList(String listId, String username) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        ShoppingList shoppingList = findShoppingList(listId);
 
         User user = userService.getUserByUsername(username);
 
         if (!shoppingList.getUserIds().contains(user.getId())) {
-            shoppingList.getUserIds().add(user.getId());
-            shoppingListRepository.save(shoppingList);
+            shoppingListViewService.refreshMembers(updateList(listId, new Update().addToSet("userIds", user.getId())));
         }
 
         return new UserResponse(user);
     }
 
     public void removeUserFromShoppingList(String listId, String userId) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        ShoppingList shoppingList = findShoppingList(listId);
 
         if (shoppingList.getUserIds().contains(userId)) {
-            shoppingList.getUserIds().remove(userId);
-            shoppingListRepository.save(shoppingList);
+            shoppingListViewService.refreshMembers(updateList(listId, new Update().pull("userIds", userId)));
         }
     }
 
+    // the account itself is deleted by UserDeletionService
     public void removeUserFromAllShoppingLists(String userId) {
-        List<ShoppingList> allLists = shoppingListRepository.findAll();
-
-        for (ShoppingList list : allLists) {
-            list.getUserIds().remove(userId);
-        }
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("userIds").is(userId)),
+                new Update().pull("userIds", userId),
+                ShoppingList.class);
+        shoppingListCache.evictAll(); // the lists are not known here, an account deletion is rare
+        shoppingListViewService.removeMember(userId);
+    }
 
-        shoppingListRepository.saveAll(allLists);
-        userService.deleteUser(userId);
+    // hides the list right away, items, item sets and activity are purged by a background job
+    public BackgroundJob deleteShoppingList(String header, String listId) {
+        findShoppingList(listId);
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(listId)),
+                new Update().set("deletedAt", Instant.now()),
+                ShoppingList.class);
+        shoppingListCache.evict(listId);
+        forgetReads(listId);
+        shoppingListViewService.deleteView(listId);
+        String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
+        return shoppingListPurgeService.startPurge(listId, userId);
     }
 
-    public void deleteShoppingList(String listId) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+    // returns shoppingItemList
+    // concurrent reads of the same list, e.g. when the polls of several members line up, share one query
+    public List<ShoppingItem> getItemsByShoppingList(String listId) {
+        return singleFlight.execute(ITEMS_READ, listId, () -> {
+            ShoppingList shoppingList = findShoppingList(listId);
 
-        // delete each item in list
-        for (String itemId : shoppingList.getItemIds()) {
-            shoppingItemService.deleteItemById(itemId);
+            return shoppingItemService.getAllItemsByIds(shoppingList.getItemIds());
+        });
+    }
+
+    // one window of the items, sorted and filtered by the database
+    // checked and tag are optional filters, without a limit all matching items are returned
+    public Page<ShoppingItem> getItemsByShoppingList(String listId, ShoppingItemSortOption sort, Sort.Direction direction,
+                                                     Boolean checked, String tag, int page, Integer limit) {
+        findShoppingList(listId);
+
+        // both checked values as $in, so the index can still deliver the sort order by merging the two ranges
+        Criteria criteria = Criteria.where("listId").is(listId)
+                .and("checked").in(checked != null ? List.of(checked) : List.of(false, true));
+        if (tag != null && !tag.isBlank()) {
+            criteria.and("tags").is(tag);
+        }
+        String sortField = switch (sort != null ? sort : ShoppingItemSortOption.NAME) {
+            case NAME -> "name";
+            case CHECKED_AT -> "checkedAt";
+            case EDITED_AT -> "editedAt";
+        };
+        Sort.Direction sortDirection = direction != null ? direction : Sort.Direction.ASC;
+        Sort order = Sort.by(sortDirection, sortField).and(Sort.by(sortDirection, "_id"));
+
+        Query query = new Query(criteria).with(order).collation(itemCollation());
+        if (limit == null) {
+            List<ShoppingItem> items = mongoTemplate.find(query, ShoppingItem.class);
+            return new PageImpl<>(items, Pageable.unpaged(order), items.size());
         }
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(limit, 1), order);
+        List<ShoppingItem> items = mongoTemplate.find(query.with(pageable), ShoppingItem.class);
+        long total = mongoTemplate.count(new Query(criteria).collation(itemCollation()), ShoppingItem.class);
+        return new PageImpl<>(items, pageable, total);
+    }
 
-        shoppingListRepository.deleteById(listId);
+    // items grouped by tag in tag order, every item appears once per tag, items without tags are left out
+    // with countsOnly just the counts, for an overview without the item bodies
+    public List<TagGroup> getItemsGroupedByTag(String listId, boolean countsOnly) {
+        findShoppingList(listId);
+
+        GroupOperation group = Aggregation.group("tag")
+                .count().as("count")
+                .sum(ConditionalOperators.when(ComparisonOperators.valueOf("checked").equalToValue(false)).then(1).otherwise(0))
+                .as("uncheckedCount");
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(Criteria.where("listId").is(listId)));
+        if (!countsOnly) {
+            stages.add(Aggregation.sort(Sort.by("name", "_id"))); // item order inside the groups
+            group = group.push(Aggregation.ROOT).as("items");
+        }
+        // a copy of the tags is unwound, so the pushed items keep all of their tags
+        stages.add(context -> new Document("$addFields", new Document("tag", "$tags")));
+        stages.add(Aggregation.unwind("tag"));
+        stages.add(group);
+        stages.add(Aggregation.project("count", "uncheckedCount", "items").and("tag").previousOperation());
+        stages.add(Aggregation.sort(Sort.by("tag")));
+
+        Aggregation aggregation = Aggregation.newAggregation(stages)
+                .withOptions(AggregationOptions.builder().collation(itemCollation()).build());
+        return mongoTemplate.aggregate(aggregation, ShoppingItem.class, TagGroup.class).getMappedResults();
     }
 
-    // returns shoppingItemList
-    public List<ShoppingItem> getItemsByShoppingList(String listId) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+    public Collation itemCollation() {
+        return Collation.of(Locale.forLanguageTag(collationLocale));
+    }
 
-        return shoppingItemService.getAllItemsByIds(shoppingList.getItemIds());
+    // items created before they knew their list get the id of the list that references them
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillItemListIds() {
+        if (!mongoTemplate.exists(new Query(Criteria.where("listId").exists(false)), ShoppingItem.class)) {
+            return;
+        }
+        Query listQuery = new Query();
+        listQuery.fields().include("itemIds");
+        long updated = 0;
+        try (Stream<ShoppingList> lists = mongoTemplate.stream(listQuery, ShoppingList.class)) {
+            Iterator<ShoppingList> iterator = lists.iterator();
+            while (iterator.hasNext()) {
+                ShoppingList list = iterator.next();
+                if (list.getItemIds() == null || list.getItemIds().isEmpty()) {
+                    continue;
+                }
+                updated += mongoTemplate.updateMulti(
+                        new Query(Criteria.where("_id").in(list.getItemIds()).and("listId").exists(false)),
+                        new Update().set("listId", list.getId()),
+                        ShoppingItem.class).getModifiedCount();
+            }
+        }
+        log.info("List id added to {} shopping items.", updated);
     }
 
     // return list of maps for each shoppingList and its uncheckedItemsAmount
     public Map<String, Integer> getUncheckedItemsAmount() {
-        List<ShoppingList> allShoppingLists = shoppingListRepository.findAll();
+        List<ShoppingList> allShoppingLists = getAllShoppingLists();
         Map<String, Integer> amountList = new HashMap<>();
 
         for (ShoppingList list : allShoppingLists) {
@@ -165,15 +296,14 @@ public class ShoppingListService {
     // save item in item repo and update item list in shopping list
     public ShoppingItem addOneItemToShoppingList(String header, String listId, ShoppingItem shoppingItem) {
         ShoppingItem createdOrUpdatedItem;
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        ShoppingList shoppingList = findShoppingList(listId);
         String username = jwtTokenProvider.getUsernameFromToken(header.replace("Bearer ", ""));
 
         if (!shoppingList.getItemIds().contains(shoppingItem.getId())) {
             // create new item
-            createdOrUpdatedItem = shoppingItemService.createItem(header, shoppingItem, false);
-            shoppingList.getItemIds().add(createdOrUpdatedItem.getId());
-            shoppingListRepository.save(shoppingList);
+            createdOrUpdatedItem = shoppingItemService.createItem(header, listId, shoppingItem, false);
+            updateList(listId, new Update().addToSet("itemIds", createdOrUpdatedItem.getId()));
+            shoppingListViewService.putItem(listId, createdOrUpdatedItem);
         } else {
             // add one item amount
             if (shoppingItem.isChecked()) {
@@ -192,10 +322,8 @@ public class ShoppingListService {
 
     public void deleteItemById(String listId, String itemId) {
         shoppingItemService.deleteItemById(itemId);
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
-        shoppingList.getItemIds().remove(itemId);
-        shoppingListRepository.save(shoppingList);
+        updateList(listId, new Update().pull("itemIds", itemId));
+        shoppingListViewService.removeItem(listId, itemId);
     }
 
     /*
@@ -203,15 +331,15 @@ public class ShoppingListService {
      */
 
     public List<ItemSet> getItemSetsByShoppingList(String listId) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        return singleFlight.execute(ITEM_SETS_READ, listId, () -> {
+            ShoppingList shoppingList = findShoppingList(listId);
 
-        return itemSetService.getAllItemSetsByIds(shoppingList.getItemSetIds());
+            return itemSetService.getAllItemSetsByIds(shoppingList.getItemSetIds());
+        });
     }
 
     public ItemSet createItemSet(String header, String listId, ItemSet itemSet) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        ShoppingList shoppingList = findShoppingList(listId);
 
         // Only check names of ItemSets referenced by this shoppingList
         List<String> itemSetIds = shoppingList.getItemSetIds();
@@ -229,6 +357,7 @@ public class ShoppingListService {
         }
 
         // creates or matches new shoppingItems from itemSetItems
+        List<String> newItemIds = new ArrayList<>();
         for (ItemSetItem itemSetItem : itemSet.getItemList()) {
             Optional<ShoppingItem> matchingItem = getItemsByShoppingList(listId).stream()
                     .filter(item -> item.getName().equals(itemSetItem.getName()))
@@ -240,6 +369,7 @@ public class ShoppingListService {
                 // no shoppingItem with matching name exists -> create new item and update id of itemSetItem
                 ShoppingItem newShoppingItem = shoppingItemService.createItem(
                         header,
+                        listId,
                         new ShoppingItem(
                                 itemSetItem.getName(),
                                 Collections.emptyList(),
@@ -251,24 +381,25 @@ public class ShoppingListService {
                 );
                 itemSetItem.setId(newShoppingItem.getId());
 
-                shoppingList.getItemIds().add(newShoppingItem.getId());
+                newItemIds.add(newShoppingItem.getId());
             }
         }
 
         // creates new ItemSet
         ItemSet newItemSet = itemSetService.createItemSet(new ItemSet(itemSet.getName(), itemSet.getItemList()));
-        if (shoppingList.getItemSetIds() == null) {
-            shoppingList.setItemSetIds(new ArrayList<>());
+        Update update = new Update().addToSet("itemSetIds", newItemSet.getId());
+        if (!newItemIds.isEmpty()) {
+            update.addToSet("itemIds").each(newItemIds.toArray());
         }
-        shoppingList.getItemSetIds().add(newItemSet.getId());
-        shoppingListRepository.save(shoppingList);
+        updateList(listId, update);
+        shoppingListViewService.rebuild(listId);
         return newItemSet;
     }
 
     public ItemSet updateItemSet(String header, String listId, ItemSet newItemSet) {
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
-                .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
+        findShoppingList(listId);
 
+        List<String> newItemIds = new ArrayList<>();
         for (ItemSetItem itemSetItem : newItemSet.getItemList()) {
             if (itemSetItem.getId().isBlank() || !itemSetItem.getName().equals(shoppingItemService.getItemById(itemSetItem.getId()).getName())) {
                 // create or match shoppingItem
@@ -282,6 +413,7 @@ public class ShoppingListService {
                     // no shoppingItem with matching name exists -> create new item and update id of itemSetItem
                     ShoppingItem newShoppingItem = shoppingItemService.createItem(
                             header,
+                            listId,
                             new ShoppingItem(
                                     itemSetItem.getName(),
                                     Collections.emptyList(),
@@ -293,20 +425,51 @@ public class ShoppingListService {
                     );
                     itemSetItem.setId(newShoppingItem.getId());
 
-                    shoppingList.getItemIds().add(newShoppingItem.getId());
+                    newItemIds.add(newShoppingItem.getId());
                 }
             }
         }
 
-        shoppingListRepository.save(shoppingList);
-        return itemSetService.updateItemSet(newItemSet);
+        if (!newItemIds.isEmpty()) {
+            updateList(listId, new Update().addToSet("itemIds").each(newItemIds.toArray()));
+        }
+        ItemSet updatedItemSet = itemSetService.updateItemSet(newItemSet);
+        singleFlight.forget(ITEM_SETS_READ, listId);
+        shoppingListViewService.rebuild(listId);
+        return updatedItemSet;
     }
 
     public void deleteItemSetById(String listId, String itemSetId) {
         itemSetService.deleteItemSetById(itemSetId);
-        ShoppingList shoppingList = shoppingListRepository.findById(listId)
+        shoppingListViewService.refreshItemSets(updateList(listId, new Update().pull("itemSetIds", itemSetId)));
+    }
+
+    // reads of the list started before the update do not answer the callers arriving after it
+    private ShoppingList updateList(String listId, Update update) {
+        try {
+            return shoppingListCache.update(listId, update);
+        } finally {
+            forgetReads(listId);
+        }
+    }
+
+    private void forgetReads(String listId) {
+        singleFlight.forget(USERS_READ, listId);
+        singleFlight.forget(ITEMS_READ, listId);
+        singleFlight.forget(ITEM_SETS_READ, listId);
+    }
+
+    // soft deleted lists count as not found
+    private ShoppingList findShoppingList(String listId) {
+        ShoppingList shoppingList = shoppingListCache.findById(listId)
                 .orElseThrow(() -> new NoSuchElementException("Shopping list not found"));
-        shoppingList.getItemIds().remove(itemSetId);
-        shoppingListRepository.save(shoppingList);
+        if (shoppingList.getDeletedAt() != null) {
+            throw new NoSuchElementException("Shopping list not found");
+        }
+        return shoppingList;
+    }
+
+    static Criteria notDeleted() {
+        return Criteria.where("deletedAt").is(null);
     }
 }
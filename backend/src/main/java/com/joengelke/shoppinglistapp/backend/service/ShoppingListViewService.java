@@ -0,0 +1,206 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.*;
+import com.joengelke.shoppinglistapp.backend.repository.ItemSetRepository;
+import com.joengelke.shoppinglistapp.backend.repository.ShoppingItemRepository;
+import com.joengelke.shoppinglistapp.backend.repository.ShoppingListRepository;
+import com.joengelke.shoppinglistapp.backend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// maintains the ShoppingListView documents
+// list level changes (name, members, item sets) rewrite that part of the view,
+// item changes are applied in place with positional updates, so no item list has to be reloaded
+// every change raises the version of the view, a rebuild replaces the view only if the version is still the one
+// it started from, so it can not overwrite a change that happened while it read the source documents
+@Slf4j
+@Service
+public class ShoppingListViewService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ShoppingListRepository shoppingListRepository;
+    private final ShoppingItemRepository shoppingItemRepository;
+    private final ItemSetRepository itemSetRepository;
+    private final UserRepository userRepository;
+
+    private static final int REBUILD_ATTEMPTS = 3;
+
+    @Value("${loadDB:false}")
+    private boolean loadDB;
+
+    public ShoppingListViewService(MongoTemplate mongoTemplate, ShoppingListRepository shoppingListRepository, ShoppingItemRepository shoppingItemRepository, ItemSetRepository itemSetRepository, UserRepository userRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.shoppingListRepository = shoppingListRepository;
+        this.shoppingItemRepository = shoppingItemRepository;
+        this.itemSetRepository = itemSetRepository;
+        this.userRepository = userRepository;
+    }
+
+    // views are derived data, after a backup was loaded they are dropped and rebuilt on first read
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropViewsAfterRestore() {
+        if (loadDB) {
+            mongoTemplate.dropCollection(ShoppingListView.class);
+            log.info("Shopping list views dropped after loading the backup.");
+        }
+    }
+
+    public ShoppingListView getView(String listId) {
+        ShoppingListView view = mongoTemplate.findById(listId, ShoppingListView.class);
+        if (view != null && view.getBuiltAt() != null) {
+            return view;
+        }
+        return rebuild(listId);
+    }
+
+    // the view document is created before the source documents are read, so changes made meanwhile raise its version
+    // if they do, the build starts over, after the last attempt the snapshot is returned and the next read builds again
+    public ShoppingListView rebuild(String listId) {
+        for (int attempt = 1; ; attempt++) {
+            Long version = placeholderVersion(listId);
+            ShoppingList shoppingList = shoppingListRepository.findById(listId)
+                    .filter(list -> list.getDeletedAt() == null)
+                    .orElse(null);
+            if (shoppingList == null) {
+                mongoTemplate.remove(new Query(Criteria.where("_id").is(listId).and("builtAt").is(null)), ShoppingListView.class);
+                throw new NoSuchElementException("Shopping list not found");
+            }
+            ShoppingListView view = new ShoppingListView(
+                    shoppingList,
+                    shoppingItemRepository.findAllById(shoppingList.getItemIds()),
+                    itemSetRepository.findAllById(shoppingList.getItemSetIds()),
+                    membersOf(shoppingList)
+            );
+            view.setVersion(version == null ? 1 : version + 1);
+            Query unchanged = new Query(Criteria.where("_id").is(listId).and("version").is(version));
+            if (mongoTemplate.findAndReplace(unchanged, view) != null) {
+                return view;
+            }
+            if (attempt == REBUILD_ATTEMPTS) {
+                log.warn("View of shopping list {} changed during {} rebuilds, it is built again on the next read.", listId, attempt);
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(listId)), new Update().unset("builtAt"), ShoppingListView.class);
+                return view;
+            }
+        }
+    }
+
+    // creates an empty view without builtAt if there is none yet, views from before the version have none
+    private Long placeholderVersion(String listId) {
+        ShoppingListView view = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(listId)),
+                new Update().setOnInsert("version", 0L),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                ShoppingListView.class);
+        return view.getVersion();
+    }
+
+    public void refreshName(ShoppingList shoppingList) {
+        updateView(shoppingList.getId(), new Update().set("name", shoppingList.getName()));
+    }
+
+    public void refreshMembers(ShoppingList shoppingList) {
+        updateView(shoppingList.getId(), new Update().set("members", membersOf(shoppingList)));
+    }
+
+    public void refreshItemSets(ShoppingList shoppingList) {
+        updateView(shoppingList.getId(), new Update().set("itemSets", itemSetRepository.findAllById(shoppingList.getItemSetIds())));
+    }
+
+    // adds the item to the view of the list or replaces it if it is already there
+    // the push only matches while the item is missing, so two concurrent calls can not add it twice
+    public void putItem(String listId, ShoppingItem item) {
+        Object itemId = storedId(item.getId());
+        Query present = new Query(Criteria.where("_id").is(listId).and("items._id").is(itemId));
+        if (mongoTemplate.updateFirst(present, replaceItem(item), ShoppingListView.class).getMatchedCount() > 0) {
+            return;
+        }
+        Query missing = new Query(Criteria.where("_id").is(listId).and("items._id").ne(itemId));
+        Update push = new Update().push("items", item).set("updatedAt", Instant.now()).inc("version", 1);
+        if (mongoTemplate.updateFirst(missing, push, ShoppingListView.class).getMatchedCount() == 0) {
+            // pushed by a concurrent call in between, or there is no view
+            mongoTemplate.updateFirst(present, replaceItem(item), ShoppingListView.class);
+        }
+    }
+
+    // replaces the item in whichever view contains it
+    public void refreshItem(ShoppingItem item) {
+        mongoTemplate.updateMulti(itemQuery(item.getId()), replaceItem(item), ShoppingListView.class);
+    }
+
+    public void refreshItems(List<ShoppingItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShoppingListView.class);
+        for (ShoppingItem item : items) {
+            bulkOperations.updateMulti(itemQuery(item.getId()), replaceItem(item));
+        }
+        bulkOperations.execute();
+    }
+
+    public void removeItem(String listId, String itemId) {
+        updateView(listId, new Update().pull("items", new Document("_id", storedId(itemId))));
+    }
+
+    public void renameMember(String userId, String username) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("members.userId").is(userId)),
+                new Update().set("members.$.username", username).set("updatedAt", Instant.now()).inc("version", 1),
+                ShoppingListView.class);
+    }
+
+    public void removeMember(String userId) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("members.userId").is(userId)),
+                new Update().pull("members", new Document("userId", userId)).set("updatedAt", Instant.now()).inc("version", 1),
+                ShoppingListView.class);
+    }
+
+    public void deleteView(String listId) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(listId)), ShoppingListView.class);
+    }
+
+    public void deleteViews(Collection<String> listIds) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(listIds)), ShoppingListView.class);
+    }
+
+    // views that do not exist yet are not created here, getView builds them on first read
+    private void updateView(String listId, Update update) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(listId)), update.set("updatedAt", Instant.now()).inc("version", 1), ShoppingListView.class);
+    }
+
+    private Query itemQuery(String itemId) {
+        return new Query(Criteria.where("items._id").is(storedId(itemId)));
+    }
+
+    private Update replaceItem(ShoppingItem item) {
+        return new Update().set("items.$", item).set("updatedAt", Instant.now()).inc("version", 1);
+    }
+
+    private List<ShoppingListView.Member> membersOf(ShoppingList shoppingList) {
+        return userRepository.findAllById(shoppingList.getUserIds()).stream()
+                .map(user -> new ShoppingListView.Member(user.getId(), user.getUsername()))
+                .toList();
+    }
+
+    // embedded item ids are stored as ObjectId like the _id of the item documents
+    private Object storedId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -0,0 +1,77 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// coalesces concurrent identical reads, the first caller for a key runs the query and the ones arriving
+// while it is in flight wait for and share its result (or exception) instead of sending the same query again
+// nothing is cached, once the query finished the next caller runs a new one
+// writes call forget after they are stored, so a caller reading its own write does not join a query started before it
+// the result object is shared between the callers, so it must not be modified
+@Component
+public class SingleFlight {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String resource, String id, Supplier<T> query) {
+        String key = resource + ":" + id;
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            count(resource, "collapsed");
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+
+        count(resource, "executed");
+        try {
+            T result = query.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    // the running query still completes for the callers that already joined it
+    public void forget(String resource, String id) {
+        inFlight.remove(resource + ":" + id);
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    private void count(String resource, String outcome) {
+        Counter.builder("singleflight.calls")
+                .tag("resource", resource)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
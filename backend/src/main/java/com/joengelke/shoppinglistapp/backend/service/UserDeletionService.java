@@ -0,0 +1,178 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.*;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// deletes a user account and everything only that user owns, as a background job
+// every step selects its documents by the user id over an index and works in batches,
+// so the cost depends on the data of the user and not on the size of the database
+@Slf4j
+@Service
+public class UserDeletionService {
+
+    public static final String JOB_TYPE = "USER_DELETION";
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final GridFsTemplate gridFsTemplate;
+    private final BackgroundJobService backgroundJobService;
+    private final ShoppingListService shoppingListService;
+    private final ShoppingListViewService shoppingListViewService;
+    private final UserService userService;
+    private final RecipeCategoryIndex recipeCategoryIndex;
+    private final RecipeIngredientIndex recipeIngredientIndex;
+    private final ItemNameSuggestionIndex itemNameSuggestionIndex;
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ShoppingListCache shoppingListCache;
+
+    public UserDeletionService(MongoTemplate mongoTemplate, GridFsTemplate gridFsTemplate, BackgroundJobService backgroundJobService, ShoppingListService shoppingListService, ShoppingListViewService shoppingListViewService, UserService userService, RecipeCategoryIndex recipeCategoryIndex, RecipeIngredientIndex recipeIngredientIndex, ItemNameSuggestionIndex itemNameSuggestionIndex, JwtTokenProvider jwtTokenProvider, ShoppingListCache shoppingListCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsTemplate = gridFsTemplate;
+        this.backgroundJobService = backgroundJobService;
+        this.shoppingListService = shoppingListService;
+        this.shoppingListViewService = shoppingListViewService;
+        this.userService = userService;
+        this.recipeCategoryIndex = recipeCategoryIndex;
+        this.recipeIngredientIndex = recipeIngredientIndex;
+        this.itemNameSuggestionIndex = itemNameSuggestionIndex;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.shoppingListCache = shoppingListCache;
+    }
+
+    // only the user or an admin may delete an account
+    public BackgroundJob startUserDeletion(String header, String userId) {
+        String token = header.replace("Bearer ", "");
+        String requestedBy = jwtTokenProvider.getUserIdFromToken(token);
+        if (!userId.equals(requestedBy) && !jwtTokenProvider.isAdmin(token)) {
+            throw new AccessDeniedException("You are not allowed to delete this user");
+        }
+        return backgroundJobService.start(JOB_TYPE, userId, requestedBy, job -> deleteUserData(job.getId(), userId));
+    }
+
+    // like the orphan sweeps, only the node holding the lease of a job runs it
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jobs.resume-interval-ms:300000}", initialDelayString = "${jobs.resume-interval-ms:300000}")
+    public void resumeUnfinishedDeletions() {
+        for (BackgroundJob job : backgroundJobService.getJobsToResume(JOB_TYPE)) {
+            log.debug("Resuming deletion of user {} (job {}).", job.getSubjectId(), job.getId());
+            backgroundJobService.submit(job, j -> deleteUserData(j.getId(), j.getSubjectId()));
+        }
+    }
+
+    private void deleteUserData(String jobId, String userId) {
+        // the account goes first, so the user cannot log in while the rest is cleaned up
+        backgroundJobService.setStep(jobId, "account");
+        userService.deleteUser(userId);
+
+        backgroundJobService.setStep(jobId, "shoppingLists");
+        deleteOwnShoppingLists(jobId, userId);
+        shoppingListService.removeUserFromAllShoppingLists(userId);
+
+        backgroundJobService.setStep(jobId, "recipes");
+        deletePrivateRecipes(jobId, userId);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("sharedWithUserIds").is(userId)),
+                new Update().pull("sharedWithUserIds", userId),
+                Recipe.class);
+
+        backgroundJobService.setStep(jobId, "activity");
+        deleteActivity(jobId, userId);
+        itemNameSuggestionIndex.removeUser(userId);
+
+        backgroundJobService.setStep(jobId, "done");
+    }
+
+    // lists without other members are deleted with their items and item sets
+    private void deleteOwnShoppingLists(String jobId, String userId) {
+        Query query = new Query(Criteria.where("userIds").is(List.of(userId))).limit(BATCH_SIZE);
+        query.fields().include("itemIds", "itemSetIds");
+
+        List<ShoppingList> batch;
+        while (!(batch = mongoTemplate.find(query, ShoppingList.class)).isEmpty()) {
+            List<String> listIds = new ArrayList<>(batch.size());
+            List<String> itemIds = new ArrayList<>();
+            List<String> itemSetIds = new ArrayList<>();
+            for (ShoppingList list : batch) {
+                listIds.add(list.getId());
+                if (list.getItemIds() != null) {
+                    itemIds.addAll(list.getItemIds());
+                }
+                if (list.getItemSetIds() != null) {
+                    itemSetIds.addAll(list.getItemSetIds());
+                }
+            }
+
+            long items = removeByIds(itemIds, ShoppingItem.class);
+            removeByIds(itemSetIds, ItemSet.class);
+            removeByIds(listIds, ShoppingList.class);
+            shoppingListCache.evictAll(listIds);
+            shoppingListViewService.deleteViews(listIds);
+            listIds.forEach(itemNameSuggestionIndex::removeList);
+
+            backgroundJobService.addProgress(jobId, "shoppingListsDeleted", listIds.size());
+            backgroundJobService.addProgress(jobId, "shoppingItemsDeleted", items);
+        }
+    }
+
+    // public and shared recipes stay in the marketplace for the users who saved them
+    private void deletePrivateRecipes(String jobId, String userId) {
+        Query query = new Query(Criteria.where("creatorId").is(userId).and("visibility").is(Visibility.PRIVATE)).limit(BATCH_SIZE);
+        query.fields().include("recipeFileIds");
+
+        List<Recipe> batch;
+        while (!(batch = mongoTemplate.find(query, Recipe.class)).isEmpty()) {
+            List<String> recipeIds = batch.stream().map(Recipe::getId).toList();
+            List<String> fileIds = batch.stream()
+                    .map(Recipe::getRecipeFileIds)
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .toList();
+
+            if (!fileIds.isEmpty()) {
+                gridFsTemplate.delete(Query.query(Criteria.where("_id").in(fileIds)));
+            }
+            userService.removeRecipesFromAllUsers(recipeIds);
+            removeByIds(recipeIds, Recipe.class);
+            for (String recipeId : recipeIds) {
+                recipeCategoryIndex.remove(recipeId);
+                recipeIngredientIndex.remove(recipeId);
+            }
+
+            backgroundJobService.addProgress(jobId, "recipesDeleted", recipeIds.size());
+            backgroundJobService.addProgress(jobId, "filesDeleted", fileIds.size());
+        }
+    }
+
+    private void deleteActivity(String jobId, String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId)).limit(BATCH_SIZE);
+        query.fields().include("_id");
+
+        List<ShoppingItemActivity> batch;
+        while (!(batch = mongoTemplate.find(query, ShoppingItemActivity.class)).isEmpty()) {
+            long removed = removeByIds(batch.stream().map(ShoppingItemActivity::getId).toList(), ShoppingItemActivity.class);
+            backgroundJobService.addProgress(jobId, "activitiesDeleted", removed);
+        }
+    }
+
+    private long removeByIds(List<String> ids, Class<?> entityClass) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), entityClass).getDeletedCount();
+    }
+}
@@ -5,11 +5,18 @@ import com.joengelke.shoppinglistapp.backend.model.User;
 import com.joengelke.shoppinglistapp.backend.repository.RecipeRepository;
 import com.joengelke.shoppinglistapp.backend.repository.UserRepository;
 import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.joengelke.shoppinglistapp.backend.security.TokenVersionTable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -21,17 +28,23 @@ import java.util.stream.Collectors;
 
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final JwtTokenProvider jwtTokenProvider;
     private final PasswordEncoder passwordEncoder;
+    private final ShoppingListViewService shoppingListViewService;
+    private final MongoTemplate mongoTemplate;
+    private final TokenVersionTable tokenVersionTable;
 
     @Autowired
-    public UserService(UserRepository userRepository, JwtTokenProvider jwtTokenProvider, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, JwtTokenProvider jwtTokenProvider, PasswordEncoder passwordEncoder, ShoppingListViewService shoppingListViewService, MongoTemplate mongoTemplate, TokenVersionTable tokenVersionTable) {
         this.userRepository = userRepository;
         this.jwtTokenProvider = jwtTokenProvider;
         this.passwordEncoder = passwordEncoder;
+        this.shoppingListViewService = shoppingListViewService;
+        this.mongoTemplate = mongoTemplate;
+        this.tokenVersionTable = tokenVersionTable;
     }
 
     @Override
@@ -41,6 +54,17 @@ public class UserService implements UserDetailsService {
         return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), getAuthority(user));
     }
 
+    // called by the authentication after a successful login if the stored hash has a lower BCrypt cost than the configured one
+    // newPassword is the password of the login hashed with the current cost
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("username").is(user.getUsername())),
+                new Update().set("password", newPassword),
+                User.class);
+        return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+    }
+
     private Set<SimpleGrantedAuthority> getAuthority(User user) {
         Set<SimpleGrantedAuthority> authorities = new HashSet<>();
         user.getRoles().forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
@@ -83,11 +107,10 @@ public class UserService implements UserDetailsService {
     public UserResponse addRoleToUser(String userId, String role) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
-        if (!user.getRoles().contains(role.toUpperCase())) {
-            user.getRoles().add(role.toUpperCase());
+        if (user.getRoles().contains(role.toUpperCase())) {
+            return new UserResponse(user);
         }
-        userRepository.save(user);
-        return new UserResponse(user);
+        return new UserResponse(updateAndRevokeTokens(userId, new Update().addToSet("roles", role.toUpperCase())));
     }
 
     public UserResponse removeRoleFromUser(String userId, String role, String header) {
@@ -110,9 +133,7 @@ public class UserService implements UserDetailsService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You cannot remove your own ADMIN role.");
         }
 
-        user.getRoles().remove(role.toUpperCase());
-        userRepository.save(user);
-        return new UserResponse(user);
+        return new UserResponse(updateAndRevokeTokens(userId, new Update().pull("roles", role.toUpperCase())));
     }
 
     public UserResponse changeUsername(String newUsername, String header) {
@@ -122,9 +143,10 @@ public class UserService implements UserDetailsService {
         String userId = jwtTokenProvider.getUserIdFromToken(header.replace("Bearer ", ""));
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
-        user.setUsername(newUsername);
-        userRepository.save(user);
-        return new UserResponse(user);
+        // the username is the subject of the token
+        User updated = updateAndRevokeTokens(user.getId(), new Update().set("username", newUsername));
+        shoppingListViewService.renameMember(userId, newUsername);
+        return new UserResponse(updated);
     }
 
     public UserResponse changePassword(String currentPassword, String newPassword, String header) {
@@ -137,9 +159,7 @@ public class UserService implements UserDetailsService {
         if (currentPassword.equals(newPassword)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "New password cannot be the same as the current password");
         }
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
-        return new UserResponse(user);
+        return new UserResponse(updateAndRevokeTokens(userId, new Update().set("password", passwordEncoder.encode(newPassword))));
     }
 
     public UserResponse addRecipeToUser(String userId, String recipeId) {
@@ -171,11 +191,20 @@ public class UserService implements UserDetailsService {
     }
 
     public void removeRecipeFromAllUsers(String recipeId) {
-        List<User> usersWithRecipe = userRepository.findByRecipeIdsContaining(recipeId);
-        for (User user : usersWithRecipe) {
-            user.getRecipeIds().remove(recipeId);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("recipeIds").is(recipeId)),
+                new Update().pull("recipeIds", recipeId),
+                User.class);
+    }
+
+    public void removeRecipesFromAllUsers(Collection<String> recipeIds) {
+        if (recipeIds.isEmpty()) {
+            return;
         }
-        userRepository.saveAll(usersWithRecipe);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("recipeIds").in(recipeIds)),
+                new Update().pullAll("recipeIds", recipeIds.toArray()),
+                User.class);
     }
 
     public List<String> getRecipeIdsByUserId(String userId) {
@@ -187,6 +216,22 @@ public class UserService implements UserDetailsService {
 
     public void deleteUser(String userId) {
         userRepository.deleteById(userId);
+        tokenVersionTable.revoke(userId);
+    }
+
+    // changes the fields and raises the token version in one update, tokens with an older version are rejected from now on
+    // $inc instead of a save of the whole user, so concurrent changes can neither lose an increment nor each other's fields
+    private User updateAndRevokeTokens(String userId, Update update) {
+        User user = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(userId)),
+                update.inc("tokenVersion", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        if (user == null) {
+            throw new NoSuchElementException("User not found");
+        }
+        tokenVersionTable.update(userId, user.getTokenVersion());
+        return user;
     }
 
 
@@ -0,0 +1,64 @@
+package com.joengelke.shoppinglistapp.backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.joengelke.shoppinglistapp.backend.model.*;
+import com.joengelke.shoppinglistapp.backend.perf.SeededBackend;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// the two phases of the hourly backup that block: reading all collections and writing the json file
+// lives in the application package to reach the package private writer of BackendApplication
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BackupBenchmark {
+
+    private MongoTemplate mongoTemplate;
+    private ObjectMapper objectMapper;
+    private File backupFile;
+    private List<User> users;
+    private List<ShoppingList> shoppingLists;
+    private List<ShoppingItem> shoppingItems;
+    private List<ItemSet> itemSets;
+    private List<Recipe> recipes;
+
+    @Setup
+    public void setUp(SeededBackend backend) throws IOException {
+        mongoTemplate = backend.context.bean(MongoTemplate.class);
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        backupFile = Files.createTempFile("shopping_backup", ".json").toFile();
+        read();
+    }
+
+    @TearDown
+    public void tearDown() {
+        backupFile.delete();
+    }
+
+    @Benchmark
+    public int read() {
+        users = mongoTemplate.findAll(User.class);
+        shoppingLists = mongoTemplate.findAll(ShoppingList.class);
+        shoppingItems = mongoTemplate.findAll(ShoppingItem.class);
+        itemSets = mongoTemplate.findAll(ItemSet.class);
+        recipes = mongoTemplate.findAll(Recipe.class);
+        return users.size() + shoppingLists.size() + shoppingItems.size() + itemSets.size() + recipes.size();
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        BackendApplication.writeBackupToFile(backupFile, users, shoppingLists, shoppingItems, itemSets, recipes, objectMapper);
+        return backupFile.length();
+    }
+}
@@ -0,0 +1,71 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// latencies and errors per endpoint of a load test run
+public final class EndpointStats {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    public void record(String endpoint, long nanos, boolean error) {
+        endpoints.computeIfAbsent(endpoint, k -> new Endpoint()).record(nanos, error);
+    }
+
+    public void print(PrintStream out, double seconds) {
+        out.printf("%-52s %8s %9s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            long[] latencies = endpoint.sortedLatencies();
+            requests += latencies.length;
+            errors += endpoint.errors;
+            out.printf("%-52s %8d %9.1f %6.2f%% %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), latencies.length, latencies.length / seconds,
+                    latencies.length == 0 ? 0.0 : 100.0 * endpoint.errors / latencies.length,
+                    millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.90)),
+                    millis(percentile(latencies, 0.99)), millis(percentile(latencies, 1.0)));
+        }
+        out.printf("%-52s %8d %9.1f %6.2f%%%n", "total", requests, requests / seconds,
+                requests == 0 ? 0.0 : 100.0 * errors / requests);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Endpoint {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        synchronized void record(long nanos, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (error) {
+                errors++;
+            }
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
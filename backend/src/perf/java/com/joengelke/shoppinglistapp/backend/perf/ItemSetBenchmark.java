@@ -0,0 +1,50 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.ItemSet;
+import com.joengelke.shoppinglistapp.backend.model.ItemSetItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingItemService;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// applying an item set adds all of its items to the list
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemSetBenchmark {
+
+    @Param({"5", "25"})
+    public int itemSetSize;
+
+    private ShoppingItemService shoppingItemService;
+    private String header;
+    private String itemSetId;
+
+    @Setup
+    public void setUp(SeededBackend backend) {
+        shoppingItemService = backend.context.bean(ShoppingItemService.class);
+        ShoppingListService shoppingListService = backend.context.bean(ShoppingListService.class);
+        header = backend.context.authorizationHeader(backend.dataset.users.get(1));
+        ShoppingList list = backend.dataset.shoppingLists.get(backend.dataset.shoppingLists.size() / 2);
+
+        List<ItemSetItem> items = new ArrayList<>();
+        for (int i = 0; i < itemSetSize; i++) {
+            items.add(new ItemSetItem("", "", "Set Zutat " + i, 1.0, ""));
+        }
+        ItemSet itemSet = shoppingListService.createItemSet(header, list.getId(), new ItemSet("Benchmark " + itemSetSize, items));
+        itemSetId = itemSet.getId();
+    }
+
+    @Benchmark
+    public List<ShoppingItem> applyItemSet() {
+        return shoppingItemService.addAllItemSetItemsToShoppingList(header, itemSetId);
+    }
+}
@@ -0,0 +1,48 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// every request verifies the token, most services parse it again for the user id
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private UsernamePasswordAuthenticationToken authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = new JwtTokenProvider("cGVyZi1iZW5jaG1hcmtzLW9ubHktbm90LWEtcmVhbC1zZWNyZXQtMDEyMw==",
+                86400000L, new SimpleMeterRegistry());
+        authentication = new UsernamePasswordAuthenticationToken("perf-user", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtTokenProvider.generateToken(authentication, "650c9f2a1234567890abcdef", 0);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtTokenProvider.generateToken(authentication, "650c9f2a1234567890abcdef", 0);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return jwtTokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String userIdFromToken() {
+        return jwtTokenProvider.getUserIdFromToken(token);
+    }
+}
@@ -0,0 +1,120 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.ItemSet;
+import com.joengelke.shoppinglistapp.backend.model.ItemSetItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// concurrent shoppers against the REST API of one backend instance on the in-memory mongo
+// reports throughput, latency percentiles and error rates per endpoint,
+// and how many items that shoppers added to the shared list at the same time went missing
+// run it once with load.virtualThreads=false and once with true to compare the two thread modes of the backend
+public final class LoadTest {
+
+    record Settings(int shoppers, int thinkMillis, double loginRatio, double itemSetRatio, double sharedEditRatio,
+                    long measureFromNanos, long endNanos) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int shoppers = Integer.getInteger("load.shoppers", 50);
+        int warmupSeconds = Integer.getInteger("load.warmup", 10);
+        int durationSeconds = Integer.getInteger("load.duration", 60);
+        boolean virtualThreads = Boolean.getBoolean("load.virtualThreads");
+
+        PerfContext context = PerfContext.start("spring.threads.virtual.enabled=" + virtualThreads);
+        try {
+            PerfDataset dataset = PerfDataset.seed(context, SeededBackend.SEED, shoppers,
+                    Integer.getInteger("load.listsPerUser", 3),
+                    Integer.getInteger("load.itemsPerList", 100),
+                    Integer.getInteger("load.recipes", 200));
+            addItemSets(context, dataset);
+            String sharedListId = createSharedList(context, dataset.users);
+
+            long start = System.nanoTime();
+            Settings settings = new Settings(shoppers,
+                    Integer.getInteger("load.thinkMs", 500),
+                    Double.parseDouble(System.getProperty("load.loginRatio", "0.1")),
+                    Double.parseDouble(System.getProperty("load.itemSetRatio", "0.05")),
+                    Double.parseDouble(System.getProperty("load.sharedEditRatio", "0.2")),
+                    start + TimeUnit.SECONDS.toNanos(warmupSeconds),
+                    start + TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds));
+            System.out.printf("%d shoppers, %d s warmup, %d s measured, %d ms think time, %s threads%n",
+                    shoppers, warmupSeconds, durationSeconds, settings.thinkMillis(), virtualThreads ? "virtual" : "platform");
+
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String baseUrl = "http://localhost:" + context.port();
+            EndpointStats stats = new EndpointStats();
+            Collection<String> addedToSharedList = new ConcurrentLinkedQueue<>();
+
+            // the shoppers are virtual threads in both modes, so the client does not limit the concurrency
+            ResourceSampler resources = new ResourceSampler(settings.measureFromNanos());
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            for (int s = 0; s < shoppers; s++) {
+                User user = dataset.users.get(s);
+                executor.execute(new ShopperSession(settings, httpClient, baseUrl, user, context.authorizationHeader(user),
+                        sharedListId, stats, addedToSharedList, SeededBackend.SEED + s));
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(warmupSeconds + durationSeconds + 60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+
+            resources.stop();
+
+            System.out.println();
+            stats.print(System.out, durationSeconds);
+            System.out.println();
+            resources.print(System.out);
+            System.out.println();
+            printLostUpdates(context, sharedListId, addedToSharedList);
+        } finally {
+            PerfContext.stop();
+        }
+        System.exit(0);
+    }
+
+    // the first list of every user gets an item set, applied now and then by the shoppers
+    private static void addItemSets(PerfContext context, PerfDataset dataset) {
+        ShoppingListService shoppingListService = context.bean(ShoppingListService.class);
+        Set<String> owners = new HashSet<>();
+        for (ShoppingList list : dataset.shoppingLists) {
+            String ownerId = list.getUserIds().get(0);
+            if (!owners.add(ownerId)) {
+                continue;
+            }
+            User owner = dataset.users.stream().filter(user -> user.getId().equals(ownerId)).findFirst().orElseThrow();
+            List<ItemSetItem> items = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                items.add(new ItemSetItem("", "", PerfDataset.ITEM_NAMES[i] + " Vorrat", 1.0, ""));
+            }
+            shoppingListService.createItemSet(context.authorizationHeader(owner), list.getId(), new ItemSet("Wocheneinkauf", items));
+        }
+    }
+
+    private static String createSharedList(PerfContext context, List<User> users) {
+        ShoppingList sharedList = new ShoppingList(null, "Gemeinsame Liste");
+        users.forEach(user -> sharedList.getUserIds().add(user.getId()));
+        return context.bean(MongoTemplate.class).insert(sharedList).getId();
+    }
+
+    private static void printLostUpdates(PerfContext context, String sharedListId, Collection<String> addedToSharedList) {
+        ShoppingList sharedList = context.bean(MongoTemplate.class).findById(sharedListId, ShoppingList.class);
+        Set<String> itemIds = new HashSet<>(sharedList.getItemIds());
+        long lost = addedToSharedList.stream().filter(id -> !itemIds.contains(id)).count();
+        System.out.printf("lost updates on the shared list: %d of %d added items are missing from it%n",
+                lost, addedToSharedList.size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.BackendApplication;
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.connection.TransportSettings;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// in-memory mongo plus the backend, started once per JVM and shared by all benchmarks of a fork
+// with -Dperf.mongoUri the backend uses that mongo instead, the in-memory one is not built for concurrent load
+// and becomes the bottleneck of a load test, the database of the uri is dropped first and has to start with "perf"
+public final class PerfContext {
+
+    private static PerfContext instance;
+
+    private final MongoServer mongoServer;
+    // spring boot creates a netty event loop for each mongo client but only shuts down the last one on close,
+    // the other keeps non-daemon threads and a jmh fork waits for them, so the clients share this one instead
+    private final EventLoopGroup mongoClientEventLoop = new NioEventLoopGroup();
+    private final ConfigurableApplicationContext context;
+    private final int port;
+
+    private PerfContext(String... extraProperties) {
+        // a devtools restart would run the caller a second time in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        String mongoUri = System.getProperty("perf.mongoUri");
+        if (mongoUri == null) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort() + "/perf";
+        } else {
+            mongoServer = null;
+            dropDatabase(mongoUri);
+        }
+
+        // spring boot only applies spring.data.mongodb.uri to its own settings, so these settings carry it themselves
+        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(mongoUri))
+                .transportSettings(TransportSettings.nettyBuilder().eventLoopGroup(mongoClientEventLoop).build())
+                .build();
+        String[] properties = {
+                "spring.data.mongodb.uri=" + mongoUri,
+                "server.port=0",
+                "management.server.port=-1",
+                "logging.level.root=WARN"
+        };
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .properties(properties)
+                .properties(extraProperties)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("perfMongoClientSettings", mongoClientSettings))
+                .run();
+        port = context.getEnvironment().getProperty("local.server.port", Integer.class, -1);
+    }
+
+    public static synchronized PerfContext start(String... extraProperties) {
+        if (instance == null) {
+            instance = new PerfContext(extraProperties);
+        }
+        return instance;
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.context.close();
+            instance.mongoClientEventLoop.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+            if (instance.mongoServer != null) {
+                instance.mongoServer.shutdownNow();
+            }
+            instance = null;
+        }
+    }
+
+    // every run seeds the same users, so it starts from an empty database
+    private static void dropDatabase(String mongoUri) {
+        String database = new ConnectionString(mongoUri).getDatabase();
+        if (database == null || !database.startsWith("perf")) {
+            throw new IllegalArgumentException("perf.mongoUri has to name a database starting with perf, it is dropped: " + mongoUri);
+        }
+        try (MongoClient client = MongoClients.create(mongoUri)) {
+            client.getDatabase(database).drop();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // port of the REST API
+    public int port() {
+        return port;
+    }
+
+    // the same header the app hands out on login
+    public String authorizationHeader(User user) {
+        String token = bean(JwtTokenProvider.class).generateToken(
+                new UsernamePasswordAuthenticationToken(user.getUsername(), null,
+                        List.of(new SimpleGrantedAuthority("ROLE_USER"))),
+                user.getId(), user.getTokenVersion());
+        return "Bearer " + token;
+    }
+}
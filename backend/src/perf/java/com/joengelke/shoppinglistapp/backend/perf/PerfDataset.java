@@ -0,0 +1,86 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.*;
+import com.joengelke.shoppinglistapp.backend.service.ItemNameSuggestionIndex;
+import com.joengelke.shoppinglistapp.backend.service.RecipeCategoryIndex;
+import com.joengelke.shoppinglistapp.backend.service.RecipeIngredientIndex;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// deterministic dataset for the benchmarks: users, their lists with items, and recipes
+public final class PerfDataset {
+
+    // every seeded user can log in with this password
+    public static final String PASSWORD = "password";
+
+    static final String[] ITEM_NAMES = {
+            "Milch", "Brot", "Butter", "Eier", "Käse", "Tomaten", "Gurke", "Nudeln", "Reis", "Äpfel",
+            "Bananen", "Kartoffeln", "Zwiebeln", "Knoblauch", "Joghurt", "Mehl", "Zucker", "Kaffee", "Tee", "Salz"
+    };
+    static final String[] CATEGORIES = {
+            "Vegetarisch", "Vegan", "Schnell", "Dessert", "Frühstück", "Pasta", "Suppe", "Salat", "Backen", "Grillen"
+    };
+
+    public final List<User> users = new ArrayList<>();
+    public final List<ShoppingList> shoppingLists = new ArrayList<>();
+
+    private PerfDataset() {
+    }
+
+    public static PerfDataset seed(PerfContext context, long seed, int userCount, int listsPerUser, int itemsPerList, int recipeCount) {
+        MongoTemplate mongoTemplate = context.bean(MongoTemplate.class);
+        Random random = new Random(seed);
+        PerfDataset dataset = new PerfDataset();
+
+        String password = context.bean(PasswordEncoder.class).encode(PASSWORD);
+        for (int u = 0; u < userCount; u++) {
+            dataset.users.add(new User("perf-user-" + u, password));
+        }
+        mongoTemplate.insertAll(dataset.users);
+
+        for (User user : dataset.users) {
+            for (int l = 0; l < listsPerUser; l++) {
+                ShoppingList list = new ShoppingList(new ObjectId().toHexString(), "Liste " + l);
+                List<ShoppingItem> items = new ArrayList<>(itemsPerList);
+                for (int i = 0; i < itemsPerList; i++) {
+                    ShoppingItem item = new ShoppingItem(ITEM_NAMES[random.nextInt(ITEM_NAMES.length)] + " " + i,
+                            new ArrayList<>(), (double) random.nextInt(5), "", "", user.getUsername());
+                    item.setChecked(random.nextInt(4) != 0); // most items of a list are history
+                    item.setListId(list.getId());
+                    items.add(item);
+                }
+                mongoTemplate.insertAll(items);
+
+                items.forEach(item -> list.getItemIds().add(item.getId()));
+                list.getUserIds().add(user.getId());
+                dataset.shoppingLists.add(list);
+            }
+        }
+        mongoTemplate.insertAll(dataset.shoppingLists);
+
+        List<Recipe> recipes = new ArrayList<>(recipeCount);
+        for (int r = 0; r < recipeCount; r++) {
+            User creator = dataset.users.get(random.nextInt(dataset.users.size()));
+            List<ItemSetItem> ingredients = new ArrayList<>();
+            for (int i = 0; i < 3 + random.nextInt(6); i++) {
+                ingredients.add(new ItemSetItem("", "", ITEM_NAMES[random.nextInt(ITEM_NAMES.length)], 1.0, ""));
+            }
+            List<String> categories = new ArrayList<>(List.of(
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            recipes.add(new Recipe("Rezept " + r, creator.getId(), creator.getUsername(), new ItemSet("Rezept " + r, ingredients),
+                    "", List.of(), categories, random.nextBoolean() ? Visibility.PUBLIC : Visibility.PRIVATE, List.of(), List.of()));
+        }
+        mongoTemplate.insertAll(recipes);
+
+        // the indexes were built on startup from the empty database
+        context.bean(RecipeCategoryIndex.class).rebuild();
+        context.bean(RecipeIngredientIndex.class).rebuild();
+        context.bean(ItemNameSuggestionIndex.class).rebuild();
+        return dataset;
+    }
+}
@@ -0,0 +1,69 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// the items of one list over HTTP: blocking controller vs. the streaming controller as JSON array and as NDJSON
+// several threads at once, so the difference in how long requests hold a server thread shows in the throughput
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadPathBenchmark {
+
+    @Param({"150", "2000"})
+    public int listSize;
+
+    @Param({"blocking", "stream-json", "stream-ndjson"})
+    public String endpoint;
+
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp(SeededBackend backend) {
+        MongoTemplate mongoTemplate = backend.context.bean(MongoTemplate.class);
+        List<ShoppingItem> items = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            items.add(new ShoppingItem(PerfDataset.ITEM_NAMES[i % PerfDataset.ITEM_NAMES.length] + " " + i,
+                    new ArrayList<>(), 1.0, "", "", "benchmark"));
+        }
+        mongoTemplate.insertAll(items);
+        ShoppingList list = new ShoppingList(null, "Read path " + listSize);
+        items.forEach(item -> list.getItemIds().add(item.getId()));
+        list.getUserIds().add(backend.dataset.users.get(0).getId());
+        mongoTemplate.insert(list);
+
+        String path = switch (endpoint) {
+            case "blocking" -> "/api/shoppinglist/" + list.getId() + "/items";
+            default -> "/api/stream/shoppinglist/" + list.getId() + "/items";
+        };
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + backend.context.port() + path))
+                .header("Authorization", backend.context.authorizationHeader(backend.dataset.users.get(0)))
+                .header("Accept", endpoint.equals("stream-ndjson") ? "application/x-ndjson" : "application/json")
+                .build();
+    }
+
+    @Benchmark
+    public int items() throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,42 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.Visibility;
+import com.joengelke.shoppinglistapp.backend.service.RecipeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// category popularity shown on the recipe screens
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeCategoryBenchmark {
+
+    private RecipeService recipeService;
+    private String header;
+
+    @Setup
+    public void setUp(SeededBackend backend) {
+        recipeService = backend.context.bean(RecipeService.class);
+        header = backend.context.authorizationHeader(backend.dataset.users.get(3));
+    }
+
+    @Benchmark
+    public List<String> allCategories() {
+        return recipeService.getRecipeCategoriesByPopularity(header, null, false);
+    }
+
+    @Benchmark
+    public List<String> publicCategories() {
+        return recipeService.getRecipeCategoriesByPopularity(header, Visibility.PUBLIC, false);
+    }
+
+    @Benchmark
+    public List<String> ownCategories() {
+        return recipeService.getRecipeCategoriesByPopularity(header, null, true);
+    }
+}
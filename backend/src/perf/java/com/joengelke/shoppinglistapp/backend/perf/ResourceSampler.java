@@ -0,0 +1,71 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// peak platform threads of the backend and heap of the JVM while a load test is measured
+// only request and background job threads count, the client, the in-memory mongo and the jvm's own threads
+// run in the same process and would hide the difference between the two modes
+// virtual threads are not in the thread count, that is the difference between the two modes
+final class ResourceSampler {
+
+    private static final String[] BACKEND_THREAD_PREFIXES = {"http-nio-", "background-job-"};
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final long measureFromNanos;
+
+    private int peakThreads;
+    private long peakHeapUsed;
+    private long peakHeapCommitted;
+
+    ResourceSampler(long measureFromNanos) {
+        this.measureFromNanos = measureFromNanos;
+        scheduler.scheduleAtFixedRate(this::sample, 0, 250, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    void print(PrintStream out) {
+        out.printf("backend platform threads (http-nio-*, background-job-*): peak %d, heap: peak used %d MB, peak committed %d MB%n",
+                peakThreads, peakHeapUsed >> 20, peakHeapCommitted >> 20);
+    }
+
+    private synchronized void sample() {
+        if (System.nanoTime() < measureFromNanos) {
+            return;
+        }
+        peakThreads = Math.max(peakThreads, backendThreads());
+        peakHeapUsed = Math.max(peakHeapUsed, memory.getHeapMemoryUsage().getUsed());
+        peakHeapCommitted = Math.max(peakHeapCommitted, memory.getHeapMemoryUsage().getCommitted());
+    }
+
+    private int backendThreads() {
+        int count = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0)) {
+            if (info != null && isBackendThread(info.getThreadName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isBackendThread(String name) {
+        for (String prefix : BACKEND_THREAD_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
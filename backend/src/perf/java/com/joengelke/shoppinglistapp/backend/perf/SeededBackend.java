@@ -0,0 +1,31 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// the backend with the seeded dataset, one per benchmark fork
+@State(Scope.Benchmark)
+public class SeededBackend {
+
+    public static final long SEED = 42;
+
+    public PerfContext context;
+    public PerfDataset dataset;
+
+    @Setup
+    public void start() {
+        context = PerfContext.start();
+        dataset = PerfDataset.seed(context, SEED,
+                Integer.getInteger("perf.users", 200),
+                Integer.getInteger("perf.listsPerUser", 3),
+                Integer.getInteger("perf.itemsPerList", 150),
+                Integer.getInteger("perf.recipes", 2000));
+    }
+
+    @TearDown
+    public void stop() {
+        PerfContext.stop();
+    }
+}
@@ -0,0 +1,144 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joengelke.shoppinglistapp.backend.model.User;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+
+// one simulated shopper: opens the app, looks at a list and checks off items while polling for changes of others
+// every session also adds items to the list all shoppers share, the ids are collected for the lost update check
+final class ShopperSession implements Runnable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LoadTest.Settings settings;
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final User user;
+    private final String sharedListId;
+    private final EndpointStats stats;
+    private final Collection<String> addedToSharedList;
+    private final Random random;
+
+    private String header;
+    private int added;
+
+    ShopperSession(LoadTest.Settings settings, HttpClient httpClient, String baseUrl, User user, String header,
+                   String sharedListId, EndpointStats stats, Collection<String> addedToSharedList, long seed) {
+        this.settings = settings;
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.user = user;
+        this.header = header;
+        this.sharedListId = sharedListId;
+        this.stats = stats;
+        this.addedToSharedList = addedToSharedList;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < settings.endNanos()) {
+            try {
+                session();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // already counted as an error of the request, the next session starts fresh
+            }
+        }
+    }
+
+    private void session() throws Exception {
+        // most app starts reuse the stored token, only some log in again
+        if (random.nextDouble() < settings.loginRatio()) {
+            JsonNode login = send("POST /api/auth/login", "POST", "/api/auth/login",
+                    Map.of("username", user.getUsername(), "password", PerfDataset.PASSWORD));
+            header = "Bearer " + login.get("token").asText();
+        }
+
+        JsonNode lists = send("GET /api/shoppinglist", "GET", "/api/shoppinglist", null);
+        if (lists.isEmpty()) {
+            return;
+        }
+        JsonNode list = lists.get(random.nextInt(lists.size()));
+        String listId = list.get("id").asText();
+        JsonNode itemSetIds = list.get("itemSetIds");
+
+        JsonNode items = send("GET /api/shoppinglist/{id}/items", "GET", "/api/shoppinglist/" + listId + "/items", null);
+        int taps = 5 + random.nextInt(16);
+        for (int tap = 0; tap < taps && System.nanoTime() < settings.endNanos(); tap++) {
+            think();
+            if (!items.isEmpty()) {
+                JsonNode item = items.get(random.nextInt(items.size()));
+                boolean checked = !item.get("checked").asBoolean();
+                send("PATCH /api/shoppingitem/{listId}/{itemId}/checked", "PATCH",
+                        "/api/shoppingitem/" + listId + "/" + item.get("id").asText() + "/checked?checked=" + checked, null);
+            }
+            if (itemSetIds != null && !itemSetIds.isEmpty() && random.nextDouble() < settings.itemSetRatio()) {
+                send("PUT /api/shoppingitem/addAllItemSetItems/{id}", "PUT",
+                        "/api/shoppingitem/addAllItemSetItems/" + itemSetIds.get(0).asText(), null);
+            }
+            if (random.nextDouble() < settings.sharedEditRatio()) {
+                JsonNode item = send("PUT /api/shoppinglist/{id}/item (shared)", "PUT",
+                        "/api/shoppinglist/" + sharedListId + "/item",
+                        Map.of("name", user.getUsername() + " " + added++, "tags", new String[0], "amount", 1.0,
+                                "unit", "", "note", "", "editedBy", user.getUsername()));
+                addedToSharedList.add(item.get("id").asText());
+            }
+            // the app polls the open list for changes of the other members
+            items = send("GET /api/shoppinglist/{id}/items", "GET", "/api/shoppinglist/" + listId + "/items", null);
+        }
+    }
+
+    private JsonNode send(String endpoint, String method, String path, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .header("Content-Type", "application/json");
+        if (header != null && !path.startsWith("/api/auth")) {
+            request.header("Authorization", header);
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            record(endpoint, start, true);
+            throw e;
+        }
+        boolean error = response.statusCode() >= 400;
+        record(endpoint, start, error);
+        if (error) {
+            throw new IllegalStateException(endpoint + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    // requests during the warmup are not part of the report
+    private void record(String endpoint, long start, boolean error) {
+        long end = System.nanoTime();
+        if (start >= settings.measureFromNanos()) {
+            stats.record(endpoint, end - start, error);
+        }
+    }
+
+    // exponentially distributed pauses between taps, like people walking through a store
+    private void think() throws InterruptedException {
+        if (settings.thinkMillis() > 0) {
+            Thread.sleep((long) (-Math.log(1 - random.nextDouble()) * settings.thinkMillis()));
+        }
+    }
+}
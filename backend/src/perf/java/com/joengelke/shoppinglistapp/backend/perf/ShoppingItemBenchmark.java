@@ -0,0 +1,55 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingItemService;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// the calls a shopper makes most: add an item, check it off, remove it
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShoppingItemBenchmark {
+
+    private ShoppingListService shoppingListService;
+    private ShoppingItemService shoppingItemService;
+    private String header;
+    private String listId;
+    private ShoppingItem existingItem;
+    private boolean checked;
+    private long counter;
+
+    @Setup
+    public void setUp(SeededBackend backend) {
+        shoppingListService = backend.context.bean(ShoppingListService.class);
+        shoppingItemService = backend.context.bean(ShoppingItemService.class);
+        User user = backend.dataset.users.get(0);
+        ShoppingList list = backend.dataset.shoppingLists.get(0);
+        header = backend.context.authorizationHeader(user);
+        listId = list.getId();
+        existingItem = shoppingItemService.getItemById(list.getItemIds().get(0));
+    }
+
+    @Benchmark
+    public ShoppingItem addCheckRemove() {
+        ShoppingItem item = shoppingListService.addOneItemToShoppingList(header, listId,
+                new ShoppingItem("Benchmark " + counter++, new ArrayList<>(), 1.0, "", "", ""));
+        shoppingItemService.updateCheckedStatus(listId, item.getId(), true, header);
+        shoppingListService.deleteItemById(listId, item.getId());
+        return item;
+    }
+
+    @Benchmark
+    public ShoppingItem toggleChecked() {
+        checked = !checked;
+        return shoppingItemService.updateCheckedStatus(listId, existingItem.getId(), checked, header);
+    }
+}
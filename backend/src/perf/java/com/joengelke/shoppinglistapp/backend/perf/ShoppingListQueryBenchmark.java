@@ -0,0 +1,32 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// the first calls of the app after login
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShoppingListQueryBenchmark {
+
+    private ShoppingListService shoppingListService;
+    private String header;
+
+    @Setup
+    public void setUp(SeededBackend backend) {
+        shoppingListService = backend.context.bean(ShoppingListService.class);
+        header = backend.context.authorizationHeader(backend.dataset.users.get(2));
+    }
+
+    @Benchmark
+    public List<ShoppingList> shoppingListsByUser() {
+        return shoppingListService.getShoppingListsByUserId(header);
+    }
+}
@@ -0,0 +1,71 @@
+package com.joengelke.shoppinglistapp.backend.perf;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// encoding and decoding a large item list and a recipe collection as JSON and as CBOR,
+// with the object mappers of the message converters the endpoints use
+// the payload sizes, raw and gzipped, are printed once per trial
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"items", "recipes"})
+    public String payload;
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private List<?> value;
+    private JavaType type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp(SeededBackend backend) throws Exception {
+        MongoTemplate mongoTemplate = backend.context.bean(MongoTemplate.class);
+        objectMapper = format.equals("cbor")
+                ? backend.context.bean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper()
+                : backend.context.bean(MappingJackson2HttpMessageConverter.class).getObjectMapper();
+        Class<?> elementType = payload.equals("items") ? ShoppingItem.class : Recipe.class;
+        value = mongoTemplate.find(new Query().limit(payload.equals("items") ? 2000 : 500), elementType);
+        type = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+        encoded = objectMapper.writeValueAsBytes(value);
+        System.out.printf("%n%s %d %s as %s: %d bytes, %d bytes gzipped%n",
+                payload, value.size(), elementType.getSimpleName(), format, encoded.length, gzip(encoded).length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return objectMapper.readValue(encoded, type);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,9 +1,14 @@
 package com.joengelke.shoppinglistapp.backend;
 
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
 
 @SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
 class BackendApplicationTests {
 
 	@Test
@@ -0,0 +1,70 @@
+package com.joengelke.shoppinglistapp.backend.controller;
+
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.joengelke.shoppinglistapp.backend.service.UserService;
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
+class ShoppingListControllerAuthorizationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private User user;
+    private User otherUser;
+
+    @BeforeEach
+    void setUp() {
+        user = userService.createUser("auth-" + UUID.randomUUID(), "password");
+        otherUser = userService.createUser("auth-" + UUID.randomUUID(), "password");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userService.deleteUser(user.getId());
+        userService.deleteUser(otherUser.getId());
+    }
+
+    @Test
+    void deletingAnotherUserIsForbidden() throws Exception {
+        mockMvc.perform(delete("/api/shoppinglist/user/{userId}", otherUser.getId()).header("Authorization", header(user, "ROLE_USER")))
+                .andExpect(status().isForbidden());
+
+        assertThat(mongoTemplate.findById(otherUser.getId(), User.class)).isNotNull();
+    }
+
+    private String header(User tokenUser, String authority) {
+        return "Bearer " + jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(tokenUser.getUsername(), null, List.of(new SimpleGrantedAuthority(authority))),
+                tokenUser.getId(), tokenUser.getTokenVersion());
+    }
+}
@@ -0,0 +1,85 @@
+package com.joengelke.shoppinglistapp.backend.controller;
+
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.model.User;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListService;
+import com.joengelke.shoppinglistapp.backend.service.ShoppingListViewService;
+import com.joengelke.shoppinglistapp.backend.service.UserService;
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.joengelke.shoppinglistapp.backend.support.MongoCommandAssertions.maxMongoCommands;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
+class ShoppingListControllerCommandBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ShoppingListService shoppingListService;
+    @Autowired
+    private ShoppingListViewService shoppingListViewService;
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private User user;
+    private String header;
+    private ShoppingList shoppingList;
+
+    @BeforeEach
+    void setUp() {
+        user = userService.createUser("budget-" + UUID.randomUUID(), "password");
+        String token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()), user.getId(), user.getTokenVersion());
+        header = "Bearer " + token;
+        shoppingList = shoppingListService.createShoppingList(new ShoppingList(null, "budget"), header);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shoppingListViewService.deleteView(shoppingList.getId());
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(shoppingList.getId())), ShoppingList.class);
+        userService.deleteUser(user.getId());
+    }
+
+    @Test
+    void shoppingListsOfUser() throws Exception {
+        // token version lookup of the jwt filter on the first request, user by name, lists of user
+        mockMvc.perform(get("/api/shoppinglist").header("Authorization", header))
+                .andExpect(status().isOk())
+                .andExpect(maxMongoCommands(3));
+    }
+
+    @Test
+    void shoppingListView() throws Exception {
+        // token version lookup of the jwt filter on the first request, the view
+        mockMvc.perform(get("/api/shoppinglist/{id}/view", shoppingList.getId()).header("Authorization", header))
+                .andExpect(status().isOk())
+                .andExpect(maxMongoCommands(2));
+    }
+}
@@ -0,0 +1,78 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.BackgroundJob;
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
+class BackgroundJobServiceTest {
+
+    private static final String TYPE = "TEST";
+
+    @Autowired
+    private BackgroundJobService backgroundJobService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(Criteria.where("type").is(TYPE)), BackgroundJob.class);
+    }
+
+    @Test
+    void startOnceKeepsOneJobPerSubject() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        BackgroundJob first = backgroundJobService.startOnce(TYPE, "list", null, job -> runs.incrementAndGet());
+        awaitQueuedJobs();
+        BackgroundJob second = backgroundJobService.startOnce(TYPE, "list", null, job -> runs.incrementAndGet());
+        awaitQueuedJobs();
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(second.getStatus()).isEqualTo(BackgroundJob.Status.COMPLETED);
+        assertThat(runs).hasValue(1);
+    }
+
+    // e.g. a resume that was queued before the job completed
+    @Test
+    void finishedJobIsNotRunAgain() throws InterruptedException {
+        BackgroundJob job = new BackgroundJob(TYPE, "completed", null);
+        job.setStatus(BackgroundJob.Status.COMPLETED);
+        mongoTemplate.insert(job);
+        BackgroundJob failed = new BackgroundJob(TYPE, "failed", null);
+        failed.setStatus(BackgroundJob.Status.FAILED);
+        failed.setAttempts(3);
+        mongoTemplate.insert(failed);
+
+        AtomicInteger runs = new AtomicInteger();
+        backgroundJobService.submit(job, j -> runs.incrementAndGet());
+        backgroundJobService.submit(failed, j -> runs.incrementAndGet());
+        awaitQueuedJobs();
+
+        assertThat(runs).hasValue(0);
+        assertThat(backgroundJobService.getJobsToResume(TYPE)).extracting(BackgroundJob::getSubjectId).doesNotContain("completed", "failed");
+        assertThat(mongoTemplate.findById(job.getId(), BackgroundJob.class).getStatus()).isEqualTo(BackgroundJob.Status.COMPLETED);
+    }
+
+    // jobs run on one thread (jobs.threads), a job submitted last runs after all others
+    private void awaitQueuedJobs() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        backgroundJobService.start(TYPE, "marker", null, job -> done.countDown());
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,38 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectIdSetTest {
+
+    @Test
+    void findsAddedIdsAfterGrowing() {
+        ObjectIdSet set = new ObjectIdSet(4);
+        List<ObjectId> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ObjectId id = new ObjectId();
+            added.add(id);
+            set.add(id.toHexString());
+        }
+        set.add(added.get(0));
+
+        assertThat(set.size()).isEqualTo(10_000);
+        assertThat(added).allMatch(set::contains);
+        assertThat(set.contains(new ObjectId())).isFalse();
+    }
+
+    @Test
+    void keepsIdsThatAreNoObjectIds() {
+        ObjectIdSet set = new ObjectIdSet();
+        set.add("legacy-id");
+
+        assertThat(set.contains("legacy-id")).isTrue();
+        assertThat(set.contains("other-id")).isFalse();
+        assertThat(set.contains(null)).isFalse();
+    }
+}
@@ -0,0 +1,51 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.ItemSet;
+import com.joengelke.shoppinglistapp.backend.model.ItemSetItem;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.Visibility;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeIngredientIndexTest {
+
+    private final RecipeIngredientIndex index = new RecipeIngredientIndex(null, new CacheInvalidationBus(null, null, false, 5, 60));
+
+    @Test
+    void ranksByCoverageThenMissingIngredients() {
+        index.put(recipe("pasta", Visibility.PUBLIC, "Nudeln", "Tomaten", "Basilikum"));
+        index.put(recipe("salad", Visibility.PUBLIC, "Tomaten", "Gurke"));
+        index.put(recipe("soup", Visibility.PUBLIC, "Kartoffeln", "Lauch"));
+
+        List<RecipeIngredientIndex.IngredientMatch> matches = index.match(List.of(" tomaten", "NUDELN", "Gurke"), "user", 10);
+
+        assertThat(matches).extracting(RecipeIngredientIndex.IngredientMatch::recipeId).containsExactly("salad", "pasta");
+        assertThat(matches.get(1).missingIngredients()).containsExactly("basilikum");
+    }
+
+    @Test
+    void respectsVisibilityAndUpdates() {
+        index.put(recipe("private", Visibility.PRIVATE, "Reis"));
+        assertThat(index.match(List.of("Reis"), "user", 10)).isEmpty();
+        assertThat(index.match(List.of("Reis"), "creator", 10)).hasSize(1);
+
+        index.put(recipe("private", Visibility.PUBLIC, "Reis"));
+        assertThat(index.match(List.of("Reis"), "user", 10)).hasSize(1);
+
+        index.remove("private");
+        assertThat(index.match(List.of("Reis"), "creator", 10)).isEmpty();
+    }
+
+    private Recipe recipe(String id, Visibility visibility, String... ingredients) {
+        List<ItemSetItem> items = Arrays.stream(ingredients)
+                .map(name -> new ItemSetItem(null, null, name, 1.0, ""))
+                .toList();
+        Recipe recipe = new Recipe(id, "creator", "creator", new ItemSet(id, items), null, null, null, visibility, null, null);
+        recipe.setId(id);
+        return recipe;
+    }
+}
@@ -0,0 +1,88 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.dto.RecipeFeedPage;
+import com.joengelke.shoppinglistapp.backend.dto.RecipeSummary;
+import com.joengelke.shoppinglistapp.backend.model.Recipe;
+import com.joengelke.shoppinglistapp.backend.model.RecipeSortOption;
+import com.joengelke.shoppinglistapp.backend.model.Visibility;
+import com.joengelke.shoppinglistapp.backend.security.JwtTokenProvider;
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
+class RecipeServiceTest {
+
+    @Autowired
+    private RecipeService recipeService;
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<String> recipeIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        recipe("Brot", Instant.parse("2025-01-02T00:00:00Z"));
+        recipe(null, Instant.parse("2025-01-01T00:00:00Z"));
+        recipe("Apfelkuchen", null);
+        recipe(null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(recipeIds)), Recipe.class);
+    }
+
+    // old recipes may lack createdAt or name, paging one by one must neither fail nor skip or repeat them
+    @Test
+    void feedPagesOverRecipesWithoutSortValue() {
+        for (RecipeSortOption sort : RecipeSortOption.values()) {
+            assertThat(walkFeed(sort)).as(sort.name()).containsExactlyInAnyOrderElementsOf(recipeIds).doesNotHaveDuplicates();
+        }
+        assertThat(walkFeed(RecipeSortOption.NEWEST).subList(0, 2)).containsExactly(recipeIds.get(0), recipeIds.get(1));
+        assertThat(walkFeed(RecipeSortOption.NAME).subList(2, 4)).containsExactly(recipeIds.get(2), recipeIds.get(0));
+    }
+
+    private List<String> walkFeed(RecipeSortOption sort) {
+        String header = "Bearer " + jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken("feed", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))),
+                "feed", 0);
+        List<String> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            RecipeFeedPage page = recipeService.getMarketplaceFeed(header, sort, cursor, 1);
+            page.getRecipes().stream().map(RecipeSummary::getId).filter(recipeIds::contains).forEach(visited::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return visited;
+    }
+
+    private void recipe(String name, Instant createdAt) {
+        Recipe recipe = new Recipe();
+        recipe.setName(name);
+        recipe.setCreatedAt(createdAt);
+        recipe.setVisibility(Visibility.PUBLIC);
+        recipe.setRecipeFileIds(List.of());
+        recipeIds.add(mongoTemplate.insert(recipe).getId());
+    }
+}
@@ -0,0 +1,120 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.dto.TagGroup;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "shopping-list.cache.enabled=true")
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
+class ShoppingListServiceTest {
+
+    @Autowired
+    private ShoppingListService shoppingListService;
+    @Autowired
+    private ShoppingListCache shoppingListCache;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private ShoppingList shoppingList;
+
+    @BeforeEach
+    void setUp() {
+        shoppingList = mongoTemplate.insert(new ShoppingList(null, "tags"));
+        item("Milch", false, "Bio", "Angebot");
+        item("Brot", true, "Bio");
+        item("Salz", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(Criteria.where("listId").is(shoppingList.getId())), ShoppingItem.class);
+        mongoTemplate.remove(shoppingList);
+    }
+
+    @Test
+    void groupsItemsByTagWithTheirOwnTags() {
+        List<TagGroup> groups = shoppingListService.getItemsGroupedByTag(shoppingList.getId(), false);
+
+        assertThat(groups).extracting(TagGroup::getTag).containsExactly("Angebot", "Bio");
+        TagGroup bio = groups.get(1);
+        assertThat(bio.getCount()).isEqualTo(2);
+        assertThat(bio.getUncheckedCount()).isEqualTo(1);
+        assertThat(bio.getItems()).extracting(ShoppingItem::getName).containsExactly("Brot", "Milch");
+        // an item with several tags appears in each group with all of its tags
+        assertThat(groups).allSatisfy(group -> assertThat(group.getItems())
+                .filteredOn(item -> item.getName().equals("Milch"))
+                .singleElement()
+                .satisfies(item -> assertThat(item.getTags()).containsExactly("Bio", "Angebot")));
+    }
+
+    @Test
+    void countsOnlyLeavesOutTheItems() {
+        List<TagGroup> groups = shoppingListService.getItemsGroupedByTag(shoppingList.getId(), true);
+
+        assertThat(groups).extracting(TagGroup::getCount).containsExactly(1, 2);
+        assertThat(groups).allSatisfy(group -> assertThat(group.getItems()).isNull());
+    }
+
+    @Test
+    void saveOfACopyReadBeforeTheSoftDeleteFails() {
+        ShoppingList copy = shoppingListCache.findById(shoppingList.getId()).orElseThrow();
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(shoppingList.getId())),
+                new Update().set("deletedAt", Instant.now()), ShoppingList.class);
+        copy.setName("renamed");
+
+        assertThatThrownBy(() -> shoppingListCache.save(copy)).isInstanceOf(NoSuchElementException.class);
+        ShoppingList stored = mongoTemplate.findById(shoppingList.getId(), ShoppingList.class);
+        assertThat(stored.getDeletedAt()).isNotNull();
+        assertThat(stored.getName()).isEqualTo("tags");
+    }
+
+    @Test
+    void saveOfACopyReadBeforeThePurgeDoesNotBringTheListBack() {
+        ShoppingList copy = shoppingListCache.findById(shoppingList.getId()).orElseThrow();
+        mongoTemplate.remove(shoppingList);
+
+        assertThatThrownBy(() -> shoppingListCache.save(copy)).isInstanceOf(NoSuchElementException.class);
+        assertThat(mongoTemplate.findById(shoppingList.getId(), ShoppingList.class)).isNull();
+    }
+
+    // another node adds an item while this node has the list cached, the rename must not write the cached item ids back
+    @Test
+    void renameKeepsItemIdsAddedByAnotherNode() {
+        shoppingListCache.findById(shoppingList.getId());
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(shoppingList.getId())),
+                new Update().push("itemIds", "6ad62c83e16d073f83040002"), ShoppingList.class);
+
+        shoppingListService.updateShoppingList(new ShoppingList(shoppingList.getId(), "renamed"));
+
+        ShoppingList stored = mongoTemplate.findById(shoppingList.getId(), ShoppingList.class);
+        assertThat(stored.getName()).isEqualTo("renamed");
+        assertThat(stored.getItemIds()).containsExactly("6ad62c83e16d073f83040002");
+    }
+
+    private void item(String name, boolean checked, String... tags) {
+        ShoppingItem item = new ShoppingItem(name, List.of(tags), 1.0, "", "", "test");
+        item.setChecked(checked);
+        item.setListId(shoppingList.getId());
+        mongoTemplate.insert(item);
+    }
+}
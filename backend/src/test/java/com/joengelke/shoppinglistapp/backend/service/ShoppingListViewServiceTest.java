@@ -0,0 +1,70 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import com.joengelke.shoppinglistapp.backend.model.ShoppingItem;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingList;
+import com.joengelke.shoppinglistapp.backend.model.ShoppingListView;
+import com.joengelke.shoppinglistapp.backend.support.EmbeddedMongoInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@ContextConfiguration(initializers = EmbeddedMongoInitializer.class)
+class ShoppingListViewServiceTest {
+
+    @Autowired
+    private ShoppingListViewService shoppingListViewService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private ShoppingList shoppingList;
+
+    @BeforeEach
+    void setUp() {
+        shoppingList = mongoTemplate.insert(new ShoppingList(null, "view"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        shoppingListViewService.deleteView(shoppingList.getId());
+        mongoTemplate.remove(shoppingList);
+    }
+
+    @Test
+    void putItemAddsAnItemOnceAndRaisesTheVersion() {
+        long version = shoppingListViewService.getView(shoppingList.getId()).getVersion();
+        ShoppingItem item = new ShoppingItem("Milch", List.of(), 1.0, "", "", "test");
+        item.setId("6ad62c83e16d073f83040001");
+
+        shoppingListViewService.putItem(shoppingList.getId(), item);
+        item.setName("Hafermilch");
+        shoppingListViewService.putItem(shoppingList.getId(), item);
+
+        ShoppingListView view = shoppingListViewService.getView(shoppingList.getId());
+        assertThat(view.getItems()).extracting(ShoppingItem::getName).containsExactly("Hafermilch");
+        assertThat(view.getVersion()).isEqualTo(version + 2);
+    }
+
+    @Test
+    void deletedListLeavesNoView() {
+        shoppingList.setDeletedAt(Instant.now());
+        mongoTemplate.save(shoppingList);
+
+        assertThatThrownBy(() -> shoppingListViewService.getView(shoppingList.getId()))
+                .isInstanceOf(NoSuchElementException.class);
+        assertThat(mongoTemplate.findById(shoppingList.getId(), ShoppingListView.class)).isNull();
+    }
+}
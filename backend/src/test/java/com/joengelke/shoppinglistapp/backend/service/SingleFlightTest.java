@@ -0,0 +1,117 @@
+package com.joengelke.shoppinglistapp.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(meterRegistry);
+
+    @Test
+    void concurrentCallersShareOneQuery() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<List<String>> call = () -> singleFlight.execute("items", "list1", () -> {
+                queries.incrementAndGet();
+                started.countDown();
+                await(release);
+                return List.of("milk");
+            });
+            Future<List<String>> leader = executor.submit(call);
+            started.await();
+            List<Future<List<String>>> followers = List.of(executor.submit(call), executor.submit(call), executor.submit(call));
+            while (collapsed() < 3) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThat(leader.get()).containsExactly("milk");
+            for (Future<List<String>> follower : followers) {
+                assertThat(follower.get()).isSameAs(leader.get());
+            }
+            assertThat(queries).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the finished query is not cached
+        singleFlight.execute("items", "list1", () -> queries.incrementAndGet());
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    void followersGetTheException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<Object> call = () -> singleFlight.execute("items", "missing", () -> {
+                started.countDown();
+                await(release);
+                throw new NoSuchElementException("ShoppingList not found");
+            });
+            Future<Object> leader = executor.submit(call);
+            started.await();
+            Future<Object> follower = executor.submit(call);
+            while (collapsed() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThatThrownBy(leader::get).hasCauseInstanceOf(NoSuchElementException.class);
+            assertThatThrownBy(follower::get).hasCauseInstanceOf(NoSuchElementException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // e.g. a client that checked an item and polls the items right after
+    @Test
+    void callerAfterAWriteDoesNotJoinTheOlderQuery() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<String> before = executor.submit(() -> singleFlight.execute("items", "list1", () -> {
+                started.countDown();
+                await(release);
+                return "unchecked";
+            }));
+            started.await();
+
+            singleFlight.forget("items", "list1");
+            assertThat(singleFlight.execute("items", "list1", () -> "checked")).isEqualTo("checked");
+
+            release.countDown();
+            assertThat(before.get()).isEqualTo("unchecked");
+            assertThat(collapsed()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double collapsed() {
+        return meterRegistry.find("singleflight.calls").tag("outcome", "collapsed").counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
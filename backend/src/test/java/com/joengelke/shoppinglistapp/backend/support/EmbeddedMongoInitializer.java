@@ -0,0 +1,32 @@
+package com.joengelke.shoppinglistapp.backend.support;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.InetSocketAddress;
+
+// points the spring tests at an in-memory mongo, one server per JVM shared by all cached test contexts
+// use together with @ActiveProfiles("test")
+public class EmbeddedMongoInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static MongoServer mongoServer;
+    private static InetSocketAddress address;
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        TestPropertyValues.of("spring.data.mongodb.uri=mongodb://" + address().getHostString() + ":" + address().getPort() + "/test")
+                .applyTo(context);
+    }
+
+    private static synchronized InetSocketAddress address() {
+        if (mongoServer == null) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            address = mongoServer.bind();
+            Runtime.getRuntime().addShutdownHook(new Thread(mongoServer::shutdownNow));
+        }
+        return address;
+    }
+}
@@ -0,0 +1,25 @@
+package com.joengelke.shoppinglistapp.backend.support;
+
+import com.joengelke.shoppinglistapp.backend.config.MongoCommandHeaderAdvice;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// MockMvc matcher for the mongo command budget of an endpoint, reads the header set by MongoCommandHeaderAdvice
+public final class MongoCommandAssertions {
+
+    private MongoCommandAssertions() {
+    }
+
+    public static ResultMatcher maxMongoCommands(int max) {
+        return result -> {
+            String header = result.getResponse().getHeader(MongoCommandHeaderAdvice.COMMANDS_HEADER);
+            assertThat(header)
+                    .as("%s %s did not report its mongo commands", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                    .isNotNull();
+            assertThat(Integer.parseInt(header))
+                    .as("mongo commands of %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                    .isLessThanOrEqualTo(max);
+        };
+    }
+}
@@ -21,6 +21,7 @@ object SettingsDataStore {
     private val SHOPPING_ITEMS_SORT_OPTION_KEY = stringPreferencesKey("shopping_items_sort_option")
     private val RECIPES_SORT_OPTION_KEY = stringPreferencesKey("recipes_sort_option")
     private val SERVER_URL_KEY = stringPreferencesKey("server_url")
+    private val BINARY_WIRE_FORMAT_KEY = booleanPreferencesKey("binary_wire_format")
 
     suspend fun setDarkMode(context: Context, isDarkMode: Boolean) {
         context.dataStore.edit { preferences ->
@@ -54,6 +55,12 @@ object SettingsDataStore {
         }
     }
 
+    suspend fun setBinaryWireFormat(context: Context, enabled: Boolean) {
+        context.dataStore.edit { preferences ->
+            preferences[BINARY_WIRE_FORMAT_KEY] = enabled
+        }
+    }
+
     val darkModeFlow: (Context) -> Flow<Boolean> = { context ->
         context.dataStore.data.map { prefs -> prefs[DARK_MODE_KEY] ?: false }
     }
@@ -109,4 +116,9 @@ object SettingsDataStore {
     val serverUrlFlow: (Context) -> Flow<String> = { context ->
         context.dataStore.data.map { prefs -> prefs[SERVER_URL_KEY] ?: "https://shopit-oracle.mooo.com:8443/api/"}
     }
+
+    // responses as CBOR instead of JSON, opt-in in the settings until it has been measured on devices
+    val binaryWireFormatFlow: (Context) -> Flow<Boolean> = { context ->
+        context.dataStore.data.map { prefs -> prefs[BINARY_WIRE_FORMAT_KEY] ?: false }
+    }
 }
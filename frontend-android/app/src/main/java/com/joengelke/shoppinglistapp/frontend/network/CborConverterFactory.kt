@@ -0,0 +1,86 @@
+package com.joengelke.shoppinglistapp.frontend.network
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory
+import com.google.gson.Gson
+import com.google.gson.JsonArray
+import com.google.gson.JsonElement
+import com.google.gson.JsonNull
+import com.google.gson.JsonObject
+import com.google.gson.JsonPrimitive
+import com.google.gson.reflect.TypeToken
+import okhttp3.RequestBody
+import okhttp3.ResponseBody
+import retrofit2.Converter
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+import java.lang.reflect.Type
+
+// reads responses sent as application/cbor, everything else goes through the gson converter
+// the cbor is read into a gson tree and mapped by gson, so the models behave exactly like with json
+class CborConverterFactory(private val gson: Gson) : Converter.Factory() {
+
+    private val cborFactory = CBORFactory()
+    private val gsonConverterFactory = GsonConverterFactory.create(gson)
+
+    override fun responseBodyConverter(
+        type: Type,
+        annotations: Array<out Annotation>,
+        retrofit: Retrofit
+    ): Converter<ResponseBody, *>? {
+        val jsonConverter = gsonConverterFactory.responseBodyConverter(type, annotations, retrofit)
+            ?: return null
+        val adapter = gson.getAdapter(TypeToken.get(type))
+        return Converter<ResponseBody, Any?> { body ->
+            val contentType = body.contentType()
+            if (contentType?.type == "application" && contentType.subtype == "cbor") {
+                body.use {
+                    cborFactory.createParser(it.byteStream()).use { parser ->
+                        adapter.fromJsonTree(readElement(parser, parser.nextToken()))
+                    }
+                }
+            } else {
+                jsonConverter.convert(body)
+            }
+        }
+    }
+
+    // request bodies stay json, the server reads both
+    override fun requestBodyConverter(
+        type: Type,
+        parameterAnnotations: Array<out Annotation>,
+        methodAnnotations: Array<out Annotation>,
+        retrofit: Retrofit
+    ): Converter<*, RequestBody>? {
+        return gsonConverterFactory.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit)
+    }
+
+    private fun readElement(parser: JsonParser, token: JsonToken?): JsonElement {
+        return when (token) {
+            JsonToken.START_OBJECT -> {
+                val obj = JsonObject()
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    val name = parser.currentName()
+                    obj.add(name, readElement(parser, parser.nextToken()))
+                }
+                obj
+            }
+            JsonToken.START_ARRAY -> {
+                val array = JsonArray()
+                var next = parser.nextToken()
+                while (next != JsonToken.END_ARRAY) {
+                    array.add(readElement(parser, next))
+                    next = parser.nextToken()
+                }
+                array
+            }
+            JsonToken.VALUE_STRING -> JsonPrimitive(parser.text)
+            JsonToken.VALUE_NUMBER_INT, JsonToken.VALUE_NUMBER_FLOAT -> JsonPrimitive(parser.numberValue)
+            JsonToken.VALUE_TRUE -> JsonPrimitive(true)
+            JsonToken.VALUE_FALSE -> JsonPrimitive(false)
+            JsonToken.VALUE_NULL, null -> JsonNull.INSTANCE
+            else -> throw IllegalStateException("Unexpected CBOR token $token")
+        }
+    }
+}
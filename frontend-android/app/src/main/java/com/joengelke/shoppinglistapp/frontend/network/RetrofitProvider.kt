@@ -32,18 +32,22 @@ class RetrofitProvider @Inject constructor(
         val baseUrl = SettingsDataStore.serverUrlFlow(context).firstOrNull()
             ?: throw IllegalStateException("Server URL is not set")
 
+        val binaryWireFormat = SettingsDataStore.binaryWireFormatFlow(context).firstOrNull() ?: false
+
         val gson: Gson = GsonBuilder().create()
 
-        okHttpClient = getSafeOkHttpClient(context, baseUrl.split(":")[1].removePrefix("//"))
+        okHttpClient = getSafeOkHttpClient(context, baseUrl.split(":")[1].removePrefix("//"), binaryWireFormat)
 
         retrofit = Retrofit.Builder()
             .baseUrl(baseUrl)
             .client(okHttpClient!!)
-            .addConverterFactory(GsonConverterFactory.create(gson))
+            .addConverterFactory(
+                if (binaryWireFormat) CborConverterFactory(gson) else GsonConverterFactory.create(gson)
+            )
             .build()
     }
 
-    private fun getSafeOkHttpClient(context: Context, ip: String): OkHttpClient {
+    private fun getSafeOkHttpClient(context: Context, ip: String, binaryWireFormat: Boolean): OkHttpClient {
         val certificateFactory = CertificateFactory.getInstance("X.509")
         val certificate = context.assets.open("mycertoracle.crt").use {
             certificateFactory.generateCertificate(it)
@@ -66,7 +70,22 @@ class RetrofitProvider @Inject constructor(
             init(null, trustManagerFactory.trustManagers, null)
         }
 
-        return OkHttpClient.Builder()
+        val builder = OkHttpClient.Builder()
+        if (binaryWireFormat) {
+            // asks for cbor, servers without it answer with json which the converter reads as well
+            builder.addInterceptor { chain ->
+                val request = chain.request()
+                chain.proceed(
+                    if (request.header("Accept") == null) {
+                        request.newBuilder().header("Accept", "application/cbor, application/json;q=0.9, */*;q=0.8").build()
+                    } else {
+                        request
+                    }
+                )
+            }
+        }
+
+        return builder
             .dns(object : Dns {
                 override fun lookup(hostname: String): List<InetAddress> {
                     return Dns.SYSTEM.lookup(hostname).filterIsInstance<Inet4Address>()
@@ -19,6 +19,7 @@ class SettingsRepository @Inject constructor(
     val shoppingItemsSortOptionFlow = SettingsDataStore.shoppingItemsSortOptionFlow(context)
     val recipesSortOptionFLow = SettingsDataStore.recipesSortOptionFlow(context)
     val serverUrlFlow = SettingsDataStore.serverUrlFlow(context)
+    val binaryWireFormatFlow = SettingsDataStore.binaryWireFormatFlow(context)
 
     suspend fun setDarkMode(enabled: Boolean) {
         SettingsDataStore.setDarkMode(context, enabled)
@@ -39,4 +40,8 @@ class SettingsRepository @Inject constructor(
     suspend fun setServerUrl(url: String) {
         SettingsDataStore.setServerUrl(context, url)
     }
+
+    suspend fun setBinaryWireFormat(enabled: Boolean) {
+        SettingsDataStore.setBinaryWireFormat(context, enabled)
+    }
 }
\ No newline at end of file
@@ -48,6 +48,7 @@ fun SettingsOverviewScreen(
     // Settings:
     val darkMode by settingsViewModel.darkMode.collectAsState()
     val fontScale by settingsViewModel.fontScale.collectAsState()
+    val binaryWireFormat by settingsViewModel.binaryWireFormat.collectAsState()
 
     val fontScales = listOf(0.8f, 0.9f, 1.0f, 1.1f, 1.2f)
     val currentFontScaleIndex = fontScales.indexOfFirst { it == fontScale }.coerceAtLeast(0)
@@ -162,6 +163,23 @@ fun SettingsOverviewScreen(
                         }
                     )
                 }
+                item {
+                    ListItem(
+                        headlineContent = { Text(stringResource(R.string.binary_wire_format)) },
+                        leadingContent = {
+                            Icon(
+                                painter = painterResource(id = R.drawable.baseline_dns_24),
+                                contentDescription = "data transfer"
+                            )
+                        },
+                        trailingContent = {
+                            Switch(
+                                checked = binaryWireFormat,
+                                onCheckedChange = { settingsViewModel.toggleBinaryWireFormat() },
+                            )
+                        }
+                    )
+                }
                 item {
                     ListItem(
                         headlineContent = { Text(text = stringResource(R.string.language)) },
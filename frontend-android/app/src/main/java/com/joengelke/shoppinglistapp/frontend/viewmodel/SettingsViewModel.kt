@@ -48,6 +48,9 @@ class SettingsViewModel @Inject constructor(
     private val _serverUrl = MutableStateFlow("https://shopit.mooo.com:8443/api/")
     val serverUrl: StateFlow<String> = _serverUrl.asStateFlow()
 
+    private val _binaryWireFormat = MutableStateFlow(false)
+    val binaryWireFormat: StateFlow<Boolean> = _binaryWireFormat.asStateFlow()
+
     init {
         viewModelScope.launch {
             settingsRepository.darkModeFlow.collect { _darkMode.value = it }
@@ -68,6 +71,9 @@ class SettingsViewModel @Inject constructor(
         viewModelScope.launch {
             settingsRepository.serverUrlFlow.collect { _serverUrl.value = it }
         }
+        viewModelScope.launch {
+            settingsRepository.binaryWireFormatFlow.collect { _binaryWireFormat.value = it }
+        }
     }
 
     fun toggleDarkMode() {
@@ -101,4 +107,12 @@ class SettingsViewModel @Inject constructor(
             retrofitProvider.initialize()
         }
     }
+
+    // the http client and converters are built with the format, so they are created again
+    fun toggleBinaryWireFormat() {
+        viewModelScope.launch {
+            settingsRepository.setBinaryWireFormat(!_binaryWireFormat.value)
+            retrofitProvider.initialize()
+        }
+    }
 }
\ No newline at end of file